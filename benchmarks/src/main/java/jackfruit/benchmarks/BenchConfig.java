@@ -0,0 +1,59 @@
+package jackfruit.benchmarks;
+
+
+/*-
+ * #%L
+ * jackfruit-benchmarks
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jackfruit.annotations.Comment;
+import jackfruit.annotations.DefaultValue;
+import jackfruit.annotations.Include;
+import jackfruit.annotations.Jackfruit;
+import jackfruit.annotations.ParserClass;
+import java.util.List;
+
+/** A representative configuration with one key of each kind. */
+@Jackfruit(prefix = "bench")
+public interface BenchConfig {
+
+  @Comment("A primitive int")
+  @DefaultValue("1")
+  int primitive();
+
+  @Comment("A boxed Integer")
+  @DefaultValue("2")
+  Integer boxed();
+
+  @Comment("A String")
+  @DefaultValue("a string value")
+  String string();
+
+  @Comment("A List of Doubles")
+  @DefaultValue("0.5 1.5 2.5 3.5 4.5")
+  List<Double> doubles();
+
+  @Comment("Read with a ParserClass")
+  @DefaultValue("1.5,-2.5")
+  @ParserClass(value = PointParser.class, threadSafe = true)
+  Point point();
+
+  @Comment("An included block")
+  @Include
+  BenchIncluded included();
+}
@@ -0,0 +1,33 @@
+package jackfruit.benchmarks;
+
+
+/*-
+ * #%L
+ * jackfruit-benchmarks
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Runs the benchmarks in {@link FactoryBenchmark} on every available thread. Factories, shared
+ * configurations and the objects read from them are shared by all threads.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+@Threads(Threads.MAX)
+public class ContendedFactoryBenchmark extends FactoryBenchmark {}
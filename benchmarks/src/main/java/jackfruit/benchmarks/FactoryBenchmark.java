@@ -0,0 +1,186 @@
+package jackfruit.benchmarks;
+
+
+/*-
+ * #%L
+ * jackfruit-benchmarks
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the methods of generated factories, and the objects they return, on a single
+ * thread. {@link ContendedFactoryBenchmark} runs the same benchmarks on every available thread.
+ *
+ * <p>Build with mvn package and run with java -jar benchmarks/target/benchmarks.jar. JMH options
+ * can be added, e.g. "-rf json" to save results for comparison with another version.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(1)
+public class FactoryBenchmark {
+
+  /** Factories and configurations shared by all threads */
+  @State(Scope.Benchmark)
+  public static class Configs {
+    BenchConfigFactory factory;
+    PropertiesConfiguration config;
+    LargeConfigFactory largeFactory;
+    PropertiesConfiguration largeConfig;
+
+    @Setup
+    public void setup() {
+      factory = new BenchConfigFactory();
+      config = factory.toConfig(factory.getTemplate());
+      largeFactory = new LargeConfigFactory();
+      largeConfig = largeFactory.toConfig(largeFactory.getTemplate());
+    }
+  }
+
+  /**
+   * An object to read values from. "lazy" objects from fromConfig() read the configuration on each
+   * call, while "snapshot" objects from fromConfigSnapshot() hold converted values.
+   */
+  @State(Scope.Benchmark)
+  public static class Values {
+    @Param({"lazy", "snapshot"})
+    String kind;
+
+    BenchConfig bench;
+
+    @Setup
+    public void setup(Configs configs) {
+      bench =
+          kind.equals("lazy")
+              ? configs.factory.fromConfig(configs.config)
+              : configs.factory.fromConfigSnapshot(configs.config);
+    }
+  }
+
+  /** Each thread modifies its own configuration */
+  @State(Scope.Thread)
+  public static class Mutable {
+    PropertiesConfiguration config;
+    PropertiesConfiguration largeConfig;
+
+    @Setup
+    public void setup(Configs configs) {
+      config = configs.factory.toConfig(configs.factory.getTemplate());
+      largeConfig = configs.largeFactory.toConfig(configs.largeFactory.getTemplate());
+    }
+  }
+
+  @Benchmark
+  public BenchConfig getTemplate(Configs configs) {
+    return configs.factory.getTemplate();
+  }
+
+  @Benchmark
+  public BenchConfig fromConfig(Configs configs) {
+    return configs.factory.fromConfig(configs.config);
+  }
+
+  @Benchmark
+  public BenchConfig fromConfigSnapshot(Configs configs) {
+    return configs.factory.fromConfigSnapshot(configs.config);
+  }
+
+  @Benchmark
+  public int getPrimitive(Values values) {
+    return values.bench.primitive();
+  }
+
+  @Benchmark
+  public Integer getBoxed(Values values) {
+    return values.bench.boxed();
+  }
+
+  @Benchmark
+  public String getString(Values values) {
+    return values.bench.string();
+  }
+
+  @Benchmark
+  public List<Double> getDoubles(Values values) {
+    return values.bench.doubles();
+  }
+
+  @Benchmark
+  public Point getParsed(Values values) {
+    return values.bench.point();
+  }
+
+  @Benchmark
+  public int getIncluded(Values values) {
+    return values.bench.included().value();
+  }
+
+  @Benchmark
+  public PropertiesConfiguration toConfig(Configs configs) {
+    return configs.factory.toConfig(configs.factory.getTemplate());
+  }
+
+  @Benchmark
+  public PropertiesConfiguration withPrimitive(Configs configs, Mutable mutable) {
+    return configs.factory.withPrimitive(mutable.config, 4);
+  }
+
+  @Benchmark
+  public PropertiesConfiguration withDoubles(Configs configs, Mutable mutable) {
+    return configs.factory.withDoubles(mutable.config, List.of(1., 2., 3.));
+  }
+
+  @Benchmark
+  public LargeConfig largeGetTemplate(Configs configs) {
+    return configs.largeFactory.getTemplate();
+  }
+
+  @Benchmark
+  public LargeConfig largeFromConfigSnapshot(Configs configs) {
+    return configs.largeFactory.fromConfigSnapshot(configs.largeConfig);
+  }
+
+  @Benchmark
+  public PropertiesConfiguration largeToConfig(Configs configs) {
+    return configs.largeFactory.toConfig(configs.largeFactory.getTemplate());
+  }
+
+  @Benchmark
+  public PropertiesConfiguration largeWith(Configs configs, Mutable mutable) {
+    return configs.largeFactory.withString198(mutable.largeConfig, "changed");
+  }
+}
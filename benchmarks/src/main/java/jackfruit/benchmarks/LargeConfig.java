@@ -0,0 +1,832 @@
+package jackfruit.benchmarks;
+
+
+/*-
+ * #%L
+ * jackfruit-benchmarks
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jackfruit.annotations.Comment;
+import jackfruit.annotations.DefaultValue;
+import jackfruit.annotations.Jackfruit;
+import java.util.List;
+
+/** A large configuration with 200 keys of the common kinds. */
+@Jackfruit(prefix = "large")
+public interface LargeConfig {
+
+  @Comment("Key 0")
+  @DefaultValue("0")
+  int int000();
+
+  @Comment("Key 1")
+  @DefaultValue("1.5")
+  double double001();
+
+  @Comment("Key 2")
+  @DefaultValue("value 2")
+  String string002();
+
+  @Comment("Key 3")
+  @DefaultValue("3 1 2")
+  List<Double> doubles003();
+
+  @Comment("Key 4")
+  @DefaultValue("4")
+  int int004();
+
+  @Comment("Key 5")
+  @DefaultValue("5.5")
+  double double005();
+
+  @Comment("Key 6")
+  @DefaultValue("value 6")
+  String string006();
+
+  @Comment("Key 7")
+  @DefaultValue("7 1 2")
+  List<Double> doubles007();
+
+  @Comment("Key 8")
+  @DefaultValue("8")
+  int int008();
+
+  @Comment("Key 9")
+  @DefaultValue("9.5")
+  double double009();
+
+  @Comment("Key 10")
+  @DefaultValue("value 10")
+  String string010();
+
+  @Comment("Key 11")
+  @DefaultValue("11 1 2")
+  List<Double> doubles011();
+
+  @Comment("Key 12")
+  @DefaultValue("12")
+  int int012();
+
+  @Comment("Key 13")
+  @DefaultValue("13.5")
+  double double013();
+
+  @Comment("Key 14")
+  @DefaultValue("value 14")
+  String string014();
+
+  @Comment("Key 15")
+  @DefaultValue("15 1 2")
+  List<Double> doubles015();
+
+  @Comment("Key 16")
+  @DefaultValue("16")
+  int int016();
+
+  @Comment("Key 17")
+  @DefaultValue("17.5")
+  double double017();
+
+  @Comment("Key 18")
+  @DefaultValue("value 18")
+  String string018();
+
+  @Comment("Key 19")
+  @DefaultValue("19 1 2")
+  List<Double> doubles019();
+
+  @Comment("Key 20")
+  @DefaultValue("20")
+  int int020();
+
+  @Comment("Key 21")
+  @DefaultValue("21.5")
+  double double021();
+
+  @Comment("Key 22")
+  @DefaultValue("value 22")
+  String string022();
+
+  @Comment("Key 23")
+  @DefaultValue("23 1 2")
+  List<Double> doubles023();
+
+  @Comment("Key 24")
+  @DefaultValue("24")
+  int int024();
+
+  @Comment("Key 25")
+  @DefaultValue("25.5")
+  double double025();
+
+  @Comment("Key 26")
+  @DefaultValue("value 26")
+  String string026();
+
+  @Comment("Key 27")
+  @DefaultValue("27 1 2")
+  List<Double> doubles027();
+
+  @Comment("Key 28")
+  @DefaultValue("28")
+  int int028();
+
+  @Comment("Key 29")
+  @DefaultValue("29.5")
+  double double029();
+
+  @Comment("Key 30")
+  @DefaultValue("value 30")
+  String string030();
+
+  @Comment("Key 31")
+  @DefaultValue("31 1 2")
+  List<Double> doubles031();
+
+  @Comment("Key 32")
+  @DefaultValue("32")
+  int int032();
+
+  @Comment("Key 33")
+  @DefaultValue("33.5")
+  double double033();
+
+  @Comment("Key 34")
+  @DefaultValue("value 34")
+  String string034();
+
+  @Comment("Key 35")
+  @DefaultValue("35 1 2")
+  List<Double> doubles035();
+
+  @Comment("Key 36")
+  @DefaultValue("36")
+  int int036();
+
+  @Comment("Key 37")
+  @DefaultValue("37.5")
+  double double037();
+
+  @Comment("Key 38")
+  @DefaultValue("value 38")
+  String string038();
+
+  @Comment("Key 39")
+  @DefaultValue("39 1 2")
+  List<Double> doubles039();
+
+  @Comment("Key 40")
+  @DefaultValue("40")
+  int int040();
+
+  @Comment("Key 41")
+  @DefaultValue("41.5")
+  double double041();
+
+  @Comment("Key 42")
+  @DefaultValue("value 42")
+  String string042();
+
+  @Comment("Key 43")
+  @DefaultValue("43 1 2")
+  List<Double> doubles043();
+
+  @Comment("Key 44")
+  @DefaultValue("44")
+  int int044();
+
+  @Comment("Key 45")
+  @DefaultValue("45.5")
+  double double045();
+
+  @Comment("Key 46")
+  @DefaultValue("value 46")
+  String string046();
+
+  @Comment("Key 47")
+  @DefaultValue("47 1 2")
+  List<Double> doubles047();
+
+  @Comment("Key 48")
+  @DefaultValue("48")
+  int int048();
+
+  @Comment("Key 49")
+  @DefaultValue("49.5")
+  double double049();
+
+  @Comment("Key 50")
+  @DefaultValue("value 50")
+  String string050();
+
+  @Comment("Key 51")
+  @DefaultValue("51 1 2")
+  List<Double> doubles051();
+
+  @Comment("Key 52")
+  @DefaultValue("52")
+  int int052();
+
+  @Comment("Key 53")
+  @DefaultValue("53.5")
+  double double053();
+
+  @Comment("Key 54")
+  @DefaultValue("value 54")
+  String string054();
+
+  @Comment("Key 55")
+  @DefaultValue("55 1 2")
+  List<Double> doubles055();
+
+  @Comment("Key 56")
+  @DefaultValue("56")
+  int int056();
+
+  @Comment("Key 57")
+  @DefaultValue("57.5")
+  double double057();
+
+  @Comment("Key 58")
+  @DefaultValue("value 58")
+  String string058();
+
+  @Comment("Key 59")
+  @DefaultValue("59 1 2")
+  List<Double> doubles059();
+
+  @Comment("Key 60")
+  @DefaultValue("60")
+  int int060();
+
+  @Comment("Key 61")
+  @DefaultValue("61.5")
+  double double061();
+
+  @Comment("Key 62")
+  @DefaultValue("value 62")
+  String string062();
+
+  @Comment("Key 63")
+  @DefaultValue("63 1 2")
+  List<Double> doubles063();
+
+  @Comment("Key 64")
+  @DefaultValue("64")
+  int int064();
+
+  @Comment("Key 65")
+  @DefaultValue("65.5")
+  double double065();
+
+  @Comment("Key 66")
+  @DefaultValue("value 66")
+  String string066();
+
+  @Comment("Key 67")
+  @DefaultValue("67 1 2")
+  List<Double> doubles067();
+
+  @Comment("Key 68")
+  @DefaultValue("68")
+  int int068();
+
+  @Comment("Key 69")
+  @DefaultValue("69.5")
+  double double069();
+
+  @Comment("Key 70")
+  @DefaultValue("value 70")
+  String string070();
+
+  @Comment("Key 71")
+  @DefaultValue("71 1 2")
+  List<Double> doubles071();
+
+  @Comment("Key 72")
+  @DefaultValue("72")
+  int int072();
+
+  @Comment("Key 73")
+  @DefaultValue("73.5")
+  double double073();
+
+  @Comment("Key 74")
+  @DefaultValue("value 74")
+  String string074();
+
+  @Comment("Key 75")
+  @DefaultValue("75 1 2")
+  List<Double> doubles075();
+
+  @Comment("Key 76")
+  @DefaultValue("76")
+  int int076();
+
+  @Comment("Key 77")
+  @DefaultValue("77.5")
+  double double077();
+
+  @Comment("Key 78")
+  @DefaultValue("value 78")
+  String string078();
+
+  @Comment("Key 79")
+  @DefaultValue("79 1 2")
+  List<Double> doubles079();
+
+  @Comment("Key 80")
+  @DefaultValue("80")
+  int int080();
+
+  @Comment("Key 81")
+  @DefaultValue("81.5")
+  double double081();
+
+  @Comment("Key 82")
+  @DefaultValue("value 82")
+  String string082();
+
+  @Comment("Key 83")
+  @DefaultValue("83 1 2")
+  List<Double> doubles083();
+
+  @Comment("Key 84")
+  @DefaultValue("84")
+  int int084();
+
+  @Comment("Key 85")
+  @DefaultValue("85.5")
+  double double085();
+
+  @Comment("Key 86")
+  @DefaultValue("value 86")
+  String string086();
+
+  @Comment("Key 87")
+  @DefaultValue("87 1 2")
+  List<Double> doubles087();
+
+  @Comment("Key 88")
+  @DefaultValue("88")
+  int int088();
+
+  @Comment("Key 89")
+  @DefaultValue("89.5")
+  double double089();
+
+  @Comment("Key 90")
+  @DefaultValue("value 90")
+  String string090();
+
+  @Comment("Key 91")
+  @DefaultValue("91 1 2")
+  List<Double> doubles091();
+
+  @Comment("Key 92")
+  @DefaultValue("92")
+  int int092();
+
+  @Comment("Key 93")
+  @DefaultValue("93.5")
+  double double093();
+
+  @Comment("Key 94")
+  @DefaultValue("value 94")
+  String string094();
+
+  @Comment("Key 95")
+  @DefaultValue("95 1 2")
+  List<Double> doubles095();
+
+  @Comment("Key 96")
+  @DefaultValue("96")
+  int int096();
+
+  @Comment("Key 97")
+  @DefaultValue("97.5")
+  double double097();
+
+  @Comment("Key 98")
+  @DefaultValue("value 98")
+  String string098();
+
+  @Comment("Key 99")
+  @DefaultValue("99 1 2")
+  List<Double> doubles099();
+
+  @Comment("Key 100")
+  @DefaultValue("100")
+  int int100();
+
+  @Comment("Key 101")
+  @DefaultValue("101.5")
+  double double101();
+
+  @Comment("Key 102")
+  @DefaultValue("value 102")
+  String string102();
+
+  @Comment("Key 103")
+  @DefaultValue("103 1 2")
+  List<Double> doubles103();
+
+  @Comment("Key 104")
+  @DefaultValue("104")
+  int int104();
+
+  @Comment("Key 105")
+  @DefaultValue("105.5")
+  double double105();
+
+  @Comment("Key 106")
+  @DefaultValue("value 106")
+  String string106();
+
+  @Comment("Key 107")
+  @DefaultValue("107 1 2")
+  List<Double> doubles107();
+
+  @Comment("Key 108")
+  @DefaultValue("108")
+  int int108();
+
+  @Comment("Key 109")
+  @DefaultValue("109.5")
+  double double109();
+
+  @Comment("Key 110")
+  @DefaultValue("value 110")
+  String string110();
+
+  @Comment("Key 111")
+  @DefaultValue("111 1 2")
+  List<Double> doubles111();
+
+  @Comment("Key 112")
+  @DefaultValue("112")
+  int int112();
+
+  @Comment("Key 113")
+  @DefaultValue("113.5")
+  double double113();
+
+  @Comment("Key 114")
+  @DefaultValue("value 114")
+  String string114();
+
+  @Comment("Key 115")
+  @DefaultValue("115 1 2")
+  List<Double> doubles115();
+
+  @Comment("Key 116")
+  @DefaultValue("116")
+  int int116();
+
+  @Comment("Key 117")
+  @DefaultValue("117.5")
+  double double117();
+
+  @Comment("Key 118")
+  @DefaultValue("value 118")
+  String string118();
+
+  @Comment("Key 119")
+  @DefaultValue("119 1 2")
+  List<Double> doubles119();
+
+  @Comment("Key 120")
+  @DefaultValue("120")
+  int int120();
+
+  @Comment("Key 121")
+  @DefaultValue("121.5")
+  double double121();
+
+  @Comment("Key 122")
+  @DefaultValue("value 122")
+  String string122();
+
+  @Comment("Key 123")
+  @DefaultValue("123 1 2")
+  List<Double> doubles123();
+
+  @Comment("Key 124")
+  @DefaultValue("124")
+  int int124();
+
+  @Comment("Key 125")
+  @DefaultValue("125.5")
+  double double125();
+
+  @Comment("Key 126")
+  @DefaultValue("value 126")
+  String string126();
+
+  @Comment("Key 127")
+  @DefaultValue("127 1 2")
+  List<Double> doubles127();
+
+  @Comment("Key 128")
+  @DefaultValue("128")
+  int int128();
+
+  @Comment("Key 129")
+  @DefaultValue("129.5")
+  double double129();
+
+  @Comment("Key 130")
+  @DefaultValue("value 130")
+  String string130();
+
+  @Comment("Key 131")
+  @DefaultValue("131 1 2")
+  List<Double> doubles131();
+
+  @Comment("Key 132")
+  @DefaultValue("132")
+  int int132();
+
+  @Comment("Key 133")
+  @DefaultValue("133.5")
+  double double133();
+
+  @Comment("Key 134")
+  @DefaultValue("value 134")
+  String string134();
+
+  @Comment("Key 135")
+  @DefaultValue("135 1 2")
+  List<Double> doubles135();
+
+  @Comment("Key 136")
+  @DefaultValue("136")
+  int int136();
+
+  @Comment("Key 137")
+  @DefaultValue("137.5")
+  double double137();
+
+  @Comment("Key 138")
+  @DefaultValue("value 138")
+  String string138();
+
+  @Comment("Key 139")
+  @DefaultValue("139 1 2")
+  List<Double> doubles139();
+
+  @Comment("Key 140")
+  @DefaultValue("140")
+  int int140();
+
+  @Comment("Key 141")
+  @DefaultValue("141.5")
+  double double141();
+
+  @Comment("Key 142")
+  @DefaultValue("value 142")
+  String string142();
+
+  @Comment("Key 143")
+  @DefaultValue("143 1 2")
+  List<Double> doubles143();
+
+  @Comment("Key 144")
+  @DefaultValue("144")
+  int int144();
+
+  @Comment("Key 145")
+  @DefaultValue("145.5")
+  double double145();
+
+  @Comment("Key 146")
+  @DefaultValue("value 146")
+  String string146();
+
+  @Comment("Key 147")
+  @DefaultValue("147 1 2")
+  List<Double> doubles147();
+
+  @Comment("Key 148")
+  @DefaultValue("148")
+  int int148();
+
+  @Comment("Key 149")
+  @DefaultValue("149.5")
+  double double149();
+
+  @Comment("Key 150")
+  @DefaultValue("value 150")
+  String string150();
+
+  @Comment("Key 151")
+  @DefaultValue("151 1 2")
+  List<Double> doubles151();
+
+  @Comment("Key 152")
+  @DefaultValue("152")
+  int int152();
+
+  @Comment("Key 153")
+  @DefaultValue("153.5")
+  double double153();
+
+  @Comment("Key 154")
+  @DefaultValue("value 154")
+  String string154();
+
+  @Comment("Key 155")
+  @DefaultValue("155 1 2")
+  List<Double> doubles155();
+
+  @Comment("Key 156")
+  @DefaultValue("156")
+  int int156();
+
+  @Comment("Key 157")
+  @DefaultValue("157.5")
+  double double157();
+
+  @Comment("Key 158")
+  @DefaultValue("value 158")
+  String string158();
+
+  @Comment("Key 159")
+  @DefaultValue("159 1 2")
+  List<Double> doubles159();
+
+  @Comment("Key 160")
+  @DefaultValue("160")
+  int int160();
+
+  @Comment("Key 161")
+  @DefaultValue("161.5")
+  double double161();
+
+  @Comment("Key 162")
+  @DefaultValue("value 162")
+  String string162();
+
+  @Comment("Key 163")
+  @DefaultValue("163 1 2")
+  List<Double> doubles163();
+
+  @Comment("Key 164")
+  @DefaultValue("164")
+  int int164();
+
+  @Comment("Key 165")
+  @DefaultValue("165.5")
+  double double165();
+
+  @Comment("Key 166")
+  @DefaultValue("value 166")
+  String string166();
+
+  @Comment("Key 167")
+  @DefaultValue("167 1 2")
+  List<Double> doubles167();
+
+  @Comment("Key 168")
+  @DefaultValue("168")
+  int int168();
+
+  @Comment("Key 169")
+  @DefaultValue("169.5")
+  double double169();
+
+  @Comment("Key 170")
+  @DefaultValue("value 170")
+  String string170();
+
+  @Comment("Key 171")
+  @DefaultValue("171 1 2")
+  List<Double> doubles171();
+
+  @Comment("Key 172")
+  @DefaultValue("172")
+  int int172();
+
+  @Comment("Key 173")
+  @DefaultValue("173.5")
+  double double173();
+
+  @Comment("Key 174")
+  @DefaultValue("value 174")
+  String string174();
+
+  @Comment("Key 175")
+  @DefaultValue("175 1 2")
+  List<Double> doubles175();
+
+  @Comment("Key 176")
+  @DefaultValue("176")
+  int int176();
+
+  @Comment("Key 177")
+  @DefaultValue("177.5")
+  double double177();
+
+  @Comment("Key 178")
+  @DefaultValue("value 178")
+  String string178();
+
+  @Comment("Key 179")
+  @DefaultValue("179 1 2")
+  List<Double> doubles179();
+
+  @Comment("Key 180")
+  @DefaultValue("180")
+  int int180();
+
+  @Comment("Key 181")
+  @DefaultValue("181.5")
+  double double181();
+
+  @Comment("Key 182")
+  @DefaultValue("value 182")
+  String string182();
+
+  @Comment("Key 183")
+  @DefaultValue("183 1 2")
+  List<Double> doubles183();
+
+  @Comment("Key 184")
+  @DefaultValue("184")
+  int int184();
+
+  @Comment("Key 185")
+  @DefaultValue("185.5")
+  double double185();
+
+  @Comment("Key 186")
+  @DefaultValue("value 186")
+  String string186();
+
+  @Comment("Key 187")
+  @DefaultValue("187 1 2")
+  List<Double> doubles187();
+
+  @Comment("Key 188")
+  @DefaultValue("188")
+  int int188();
+
+  @Comment("Key 189")
+  @DefaultValue("189.5")
+  double double189();
+
+  @Comment("Key 190")
+  @DefaultValue("value 190")
+  String string190();
+
+  @Comment("Key 191")
+  @DefaultValue("191 1 2")
+  List<Double> doubles191();
+
+  @Comment("Key 192")
+  @DefaultValue("192")
+  int int192();
+
+  @Comment("Key 193")
+  @DefaultValue("193.5")
+  double double193();
+
+  @Comment("Key 194")
+  @DefaultValue("value 194")
+  String string194();
+
+  @Comment("Key 195")
+  @DefaultValue("195 1 2")
+  List<Double> doubles195();
+
+  @Comment("Key 196")
+  @DefaultValue("196")
+  int int196();
+
+  @Comment("Key 197")
+  @DefaultValue("197.5")
+  double double197();
+
+  @Comment("Key 198")
+  @DefaultValue("value 198")
+  String string198();
+
+  @Comment("Key 199")
+  @DefaultValue("199 1 2")
+  List<Double> doubles199();
+}
@@ -0,0 +1,40 @@
+package jackfruit.benchmarks;
+
+
+/*-
+ * #%L
+ * jackfruit-benchmarks
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jackfruit.annotations.Parser;
+
+/** Reads a {@link Point} written as "x,y". */
+public class PointParser implements Parser<Point> {
+
+  @Override
+  public Point fromString(String s) {
+    int comma = s.indexOf(',');
+    return new Point(
+        Double.parseDouble(s.substring(0, comma)), Double.parseDouble(s.substring(comma + 1)));
+  }
+
+  @Override
+  public String toString(Point p) {
+    return p.x() + "," + p.y();
+  }
+}
@@ -93,7 +93,7 @@ public abstract class DemoClass extends DemoSuperClass {
 
       obj3 obj4
       """)
-  @ParserClass(SomeRandomClassParser.class)
+  @ParserClass(value = SomeRandomClassParser.class, threadSafe = true)
   public abstract List<SomeRandomClass> randoms();
 
   @Comment("Access another configuration block")
@@ -0,0 +1,70 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jackfruit.annotations.Comment;
+import jackfruit.annotations.DefaultValue;
+import jackfruit.annotations.Jackfruit;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Enums are read without a &#x0040;ParserClass. Names are matched without regard to case, and are
+ * written using the name of the constant.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+@Jackfruit(prefix = "enums")
+public interface DemoEnums {
+
+  enum Level {
+    LOW,
+    MEDIUM,
+    HIGH
+  }
+
+  @Comment("A single enum")
+  @DefaultValue("medium")
+  Level level();
+
+  @Comment("List of enums")
+  @DefaultValue("HIGH LOW")
+  List<Level> levels();
+
+  @Comment("Set of enums, stored in an unmodifiable EnumSet")
+  @DefaultValue("HIGH LOW")
+  Set<Level> allowed();
+
+  @Comment("EnumSet, which is copied each time it is returned")
+  @DefaultValue("MEDIUM")
+  EnumSet<Level> required();
+
+  @Comment("Map with enum keys, stored in an unmodifiable EnumMap")
+  @DefaultValue("low=0.1 high=0.9")
+  Map<Level, Double> weights();
+
+  @Comment("EnumMap, which is copied each time it is returned")
+  @DefaultValue("HIGH=red LOW=green")
+  EnumMap<Level, String> colors();
+}
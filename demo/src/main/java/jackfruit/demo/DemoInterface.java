@@ -92,6 +92,10 @@ public interface DemoInterface {
   @DefaultValue("0. 5.34 17")
   List<Double> doubles();
 
+  @Comment("Array of doubles.  Elements are parsed without boxing.")
+  @DefaultValue("1.5 2.5 3.5")
+  double[] doubleArray();
+
   @Comment("List of RandomClass")
   @DefaultValue("""
           obj1
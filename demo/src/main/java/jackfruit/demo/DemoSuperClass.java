@@ -42,6 +42,6 @@ public abstract class DemoSuperClass extends DemoSuperSuperClass {
   @Comment(
       "This string is serialized into an object\n\tThis comment contains a newline character, and this line starts with a tab.")
   @DefaultValue("serialized string")
-  @ParserClass(SomeRandomClassParser.class)
+  @ParserClass(value = SomeRandomClassParser.class, threadSafe = true)
   public abstract SomeRandomClass randomClass();
 }
@@ -0,0 +1,58 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jackfruit.annotations.Comment;
+import jackfruit.annotations.DefaultValue;
+import jackfruit.annotations.Jackfruit;
+import jackfruit.annotations.KeyParserClass;
+import jackfruit.annotations.ParserClass;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sets and maps are stored like lists, with one property for each element. A map entry is written
+ * as key=value, split at the first '='. Use &#x0040;KeyParserClass for map keys and
+ * &#x0040;ParserClass for map values that are not strings or primitives.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+@Jackfruit(prefix = "tables")
+public interface DemoTables {
+
+  @Comment("Set of Integers")
+  @DefaultValue("2 3 5 7")
+  Set<Integer> primes();
+
+  @Comment("Map of String to Double")
+  @DefaultValue("low=0.25 high=0.75")
+  Map<String, Double> thresholds();
+
+  @Comment("Map of SomeRandomClass to Integer")
+  @DefaultValue("obj1=1 obj2=2")
+  @KeyParserClass(SomeRandomClassParser.class)
+  Map<SomeRandomClass, Integer> counts();
+
+  @Comment("Map of String to SomeRandomClass")
+  @DefaultValue("east=obj1 west=obj2")
+  @ParserClass(SomeRandomClassParser.class)
+  Map<String, SomeRandomClass> randoms();
+}
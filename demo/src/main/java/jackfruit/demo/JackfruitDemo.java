@@ -20,6 +20,7 @@ package jackfruit.demo;
  * #L%
  */
 
+import jackfruit.processor.ConfigFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -47,6 +48,11 @@ public class JackfruitDemo {
     DemoInterface template = factory.getTemplate();
     */
 
+    // factories can also be looked up by type
+    System.out.println(
+        "*** Template from ConfigFactory.forType() is the same: "
+            + ConfigFactory.forType(DemoClass.class).getTemplate().equals(template));
+
     // generate an Apache PropertiesConfiguration object. This can be written out to
     // a file
     PropertiesConfiguration config =
@@ -58,7 +64,7 @@ public class JackfruitDemo {
       config.write(new PrintWriter(System.out));
 
       // add 999 to the default double values
-      List<Double> doubles = template.doubles();
+      List<Double> doubles = new ArrayList<>(template.doubles());
       doubles.add(999.);
       config = factory.withDoubles(config, doubles);
 
@@ -76,6 +82,14 @@ public class JackfruitDemo {
       // print to screen - this still has comments?
       config.write(new PrintWriter(System.out));
 
+      // read the same file without building an Apache Configuration
+      DemoClass fromFile = factory.fromPath(tmpFile.toPath());
+      System.out.println("\n*** Value of doubles read directly from file: " + fromFile.doubles());
+
+      // write it back out without building an Apache Configuration
+      System.out.println("\n*** Written directly from the object read from file");
+      factory.writeTo(fromFile, System.out);
+
     } catch (ConfigurationException | IOException e) {
       e.printStackTrace();
     }
@@ -89,6 +103,36 @@ public class JackfruitDemo {
     for (SomeRandomClass random : randoms)
       System.out.println("random.toUpperCase() = " + random.toUpperCase());
 
+    // read every value once. The snapshot does not refer to the configuration after this call.
+    DemoClass snapshot = factory.fromConfigSnapshot(config);
+    System.out.println("\n*** Snapshot value of doubles: " + snapshot.doubles());
+
+    // change several values, then create a new object once
+    DemoClassFactory.Builder builder = factory.toBuilder(snapshot).withIntMethod(4);
+    builder.includedBuilder().withIncludedIntMethod(2);
+    DemoClass changed = builder.build();
+    System.out.println(
+        "\n*** Built with intMethod = "
+            + changed.intMethod()
+            + " and includedIntMethod = "
+            + changed.included().includedIntMethod());
+
+    // keys missing from the configuration are given their default values
+    PropertiesConfiguration partial = new PropertiesConfiguration();
+    partial.setProperty(DemoClassFactory.DEFAULT_PREFIX + "key", 7);
+    DemoClass withDefaults = factory.fromConfigWithDefaults(partial);
+    System.out.println(
+        "\n*** Read with defaults, changed keys: "
+            + factory.diff(factory.getTemplate(), withDefaults));
+
+    // converted from src/main/config by jackfruit-maven-plugin when the demo was built
+    try {
+      DemoEnums production = new DemoEnumsFactory().fromCompiled("production");
+      System.out.println("\n*** Compiled production configuration: " + production);
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+
     // create a new factory with a different prefix, but same parameters
     System.out.println();
     System.out.println(
@@ -35,4 +35,20 @@ public class SomeRandomClass {
   public String toUpperCase() {
     return internalString.toUpperCase();
   }
+
+  // equals() and hashCode() let config objects holding this class be compared by value
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof SomeRandomClass other && internalString.equals(other.internalString);
+  }
+
+  @Override
+  public int hashCode() {
+    return internalString.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return internalString;
+  }
 }
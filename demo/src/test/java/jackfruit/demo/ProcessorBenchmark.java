@@ -0,0 +1,367 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import jackfruit.processor.ConfigProcessor;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import org.junit.Test;
+
+/**
+ * Runs {@link ConfigProcessor} in process on synthetic sources and reports the time spent, the
+ * size of the generated sources and the peak heap used. Each corpus has a number of annotated
+ * types with a number of keys each. Every type extends a shared chain of annotated abstract
+ * classes, and may include some of the types declared before it.
+ *
+ * <p>This is not run as part of the normal build. Run it from the top level directory with
+ *
+ * <pre>
+ * mvn test -pl demo -am -Dtest=ProcessorBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -DargLine=-Xmx4g -Dbenchmark.args="types=10000 keys=10 depth=3 includes=2"
+ * </pre>
+ *
+ * or call {@link #main(String[])}. With no arguments a fixed set of corpora is run. Arguments of
+ * the form name=value run a single corpus instead. The names are types, keys, depth, includes,
+ * warmup and iterations.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+public class ProcessorBenchmark {
+
+  private static final String PACKAGE = "bench";
+
+  /** Value types used for keys, in turn: declared type, default value, and any extra annotation */
+  private static final String[][] KEY_TYPES = {
+    {"int", "1", ""},
+    {"double", "2.5", ""},
+    {"String", "value", ""},
+    {"List<Double>", "1 2 3", ""},
+    {"boolean", "true", ""},
+    {"long", "4", ""},
+    {"Double", "5.5", ""},
+    {"SomeRandomClass", "random", "@ParserClass(SomeRandomClassParser.class)"}
+  };
+
+  /**
+   * @param types number of annotated types, not counting the shared superclasses
+   * @param keys number of keys declared in each type
+   * @param depth number of annotated abstract classes each type extends. If 0, each type is an
+   *     interface.
+   * @param includes number of earlier types included by each type
+   */
+  public record Corpus(int types, int keys, int depth, int includes) {}
+
+  /**
+   * @param corpus corpus that was processed
+   * @param files number of generated source files
+   * @param bytes total size of the generated source files
+   * @param compileMillis time taken by the compiler, including parsing the corpus
+   * @param processMillis time spent in {@link ConfigProcessor#process(Set, RoundEnvironment)}
+   * @param peakHeapBytes sum of the peak usage of each heap memory pool during the run
+   */
+  public record Result(
+      Corpus corpus,
+      int files,
+      long bytes,
+      long compileMillis,
+      long processMillis,
+      long peakHeapBytes) {}
+
+  /** Corpora run when no arguments are given */
+  private static final List<Corpus> DEFAULT_CORPORA =
+      List.of(
+          new Corpus(10, 10, 0, 0),
+          new Corpus(10, 2000, 0, 0),
+          new Corpus(1000, 10, 3, 2),
+          new Corpus(1000, 100, 3, 2),
+          new Corpus(10000, 10, 3, 2));
+
+  @Test
+  public void benchmark() throws IOException {
+    String args = System.getProperty("benchmark.args", "").strip();
+    main(args.isEmpty() ? new String[0] : args.split("\\s+"));
+  }
+
+  public static void main(String[] args) throws IOException {
+    Map<String, Integer> params = new LinkedHashMap<>();
+    for (String arg : args) {
+      String[] parts = arg.split("=", 2);
+      if (parts.length != 2) throw new IllegalArgumentException("Expected name=value: " + arg);
+      params.put(parts[0].strip(), Integer.parseInt(parts[1].strip()));
+    }
+    int warmup = params.getOrDefault("warmup", 1);
+    int iterations = params.getOrDefault("iterations", 3);
+
+    List<Corpus> corpora = DEFAULT_CORPORA;
+    if (params.containsKey("types") || params.containsKey("keys")) {
+      corpora =
+          List.of(
+              new Corpus(
+                  params.getOrDefault("types", 100),
+                  params.getOrDefault("keys", 10),
+                  params.getOrDefault("depth", 0),
+                  params.getOrDefault("includes", 0)));
+    }
+
+    System.out.printf(
+        "%7s %6s %6s %9s %7s %12s %12s %12s %10s%n",
+        "types", "keys", "depth", "includes", "files", "source KB", "compile ms", "process ms",
+        "heap MB");
+    for (Corpus corpus : corpora) {
+      for (int i = 0; i < warmup; i++) run(corpus);
+      for (int i = 0; i < iterations; i++) {
+        Result r = run(corpus);
+        System.out.printf(
+            "%7d %6d %6d %9d %7d %12d %12d %12d %10d%n",
+            corpus.types(),
+            corpus.keys(),
+            corpus.depth(),
+            corpus.includes(),
+            r.files(),
+            r.bytes() / 1024,
+            r.compileMillis(),
+            r.processMillis(),
+            r.peakHeapBytes() / (1024 * 1024));
+      }
+    }
+  }
+
+  /**
+   * Generate the sources for a corpus and run the annotation processor on them. No class files are
+   * written.
+   *
+   * @param corpus corpus to process
+   * @return measurements from this run
+   * @throws IOException if the generated sources can't be written or read
+   * @throws IllegalStateException if the compiler reports an error
+   */
+  public static Result run(Corpus corpus) throws IOException {
+    List<JavaFileObject> sources = generateSources(corpus);
+
+    Path out = Files.createTempDirectory("jackfruit-benchmark");
+    try {
+      String classPath =
+          System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+      List<String> options =
+          List.of(
+              "-proc:only", "-classpath", classPath, "-s", out.toString(), "-d", out.toString());
+
+      JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+      JavaCompiler.CompilationTask task =
+          compiler.getTask(null, null, diagnostics, options, null, sources);
+      TimedProcessor processor = new TimedProcessor(new ConfigProcessor());
+      task.setProcessors(List.of(processor));
+
+      System.gc();
+      List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          pool.resetPeakUsage();
+          heapPools.add(pool);
+        }
+      }
+
+      long start = System.nanoTime();
+      boolean success = task.call();
+      long compileNanos = System.nanoTime() - start;
+
+      long peakHeap = 0;
+      for (MemoryPoolMXBean pool : heapPools) peakHeap += pool.getPeakUsage().getUsed();
+
+      for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+        if (d.getKind() == Diagnostic.Kind.ERROR)
+          throw new IllegalStateException(d.getMessage(Locale.getDefault()));
+      }
+      if (!success) throw new IllegalStateException("Compilation failed");
+
+      int files = 0;
+      long bytes = 0;
+      try (Stream<Path> paths = Files.walk(out)) {
+        for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+          files++;
+          bytes += Files.size(path);
+        }
+      }
+
+      return new Result(
+          corpus, files, bytes, compileNanos / 1000000, processor.nanos / 1000000, peakHeap);
+    } finally {
+      try (Stream<Path> paths = Files.walk(out)) {
+        for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+          Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * @param corpus corpus to generate
+   * @return in memory sources for the shared superclasses and each annotated type
+   */
+  static List<JavaFileObject> generateSources(Corpus corpus) {
+    List<JavaFileObject> sources = new ArrayList<>();
+
+    for (int level = 0; level < corpus.depth(); level++) {
+      String name = "Level" + level;
+      String superClass = level == 0 ? null : "Level" + (level - 1);
+      sources.add(source(name, typeSource(name, superClass, true, 5, 0, 0)));
+    }
+
+    String superClass = corpus.depth() == 0 ? null : "Level" + (corpus.depth() - 1);
+    for (int i = 0; i < corpus.types(); i++) {
+      String name = "Config" + i;
+      boolean isClass = corpus.depth() > 0;
+      int includes = Math.min(i, corpus.includes());
+      sources.add(
+          source(name, typeSource(name, superClass, isClass, corpus.keys(), includes, i)));
+    }
+    return sources;
+  }
+
+  /**
+   * @param name simple name of the type
+   * @param superClass simple name of the superclass, or null
+   * @param isClass true for an abstract class, false for an interface
+   * @param keys number of keys to declare
+   * @param includes number of types to include. Type i includes types i-1, i-2 and so on.
+   * @param index index of this type, used to name included types
+   * @return source code for one annotated type
+   */
+  private static String typeSource(
+      String name, String superClass, boolean isClass, int keys, int includes, int index) {
+    String modifiers = isClass ? "public abstract " : "";
+    StringBuilder sb = new StringBuilder();
+    sb.append("package ").append(PACKAGE).append(";\n\n");
+    sb.append("import jackfruit.annotations.*;\n");
+    sb.append("import jackfruit.demo.SomeRandomClass;\n");
+    sb.append("import jackfruit.demo.SomeRandomClassParser;\n");
+    sb.append("import java.util.List;\n\n");
+    sb.append("@Jackfruit(prefix = \"").append(name.toLowerCase()).append("\")\n");
+    sb.append("public ").append(isClass ? "abstract class " : "interface ").append(name);
+    if (superClass != null) sb.append(" extends ").append(superClass);
+    sb.append(" {\n");
+
+    String keyPrefix = Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    for (int j = 0; j < keys; j++) {
+      String[] keyType = KEY_TYPES[j % KEY_TYPES.length];
+      sb.append('\n');
+      if (j % 2 == 0) sb.append(String.format("  @Comment(\"key %d of %s\")\n", j, name));
+      sb.append("  @DefaultValue(\"").append(keyType[1]).append("\")\n");
+      if (!keyType[2].isEmpty()) sb.append("  ").append(keyType[2]).append('\n');
+      sb.append("  ").append(modifiers).append(keyType[0]).append(' ');
+      sb.append(keyPrefix).append("Key").append(j).append("();\n");
+    }
+
+    for (int m = 1; m <= includes; m++) {
+      sb.append("\n  @Include\n");
+      sb.append("  ").append(modifiers).append("Config").append(index - m);
+      sb.append(" include").append(m).append("();\n");
+    }
+    sb.append("}\n");
+    return sb.toString();
+  }
+
+  private static JavaFileObject source(String name, String code) {
+    URI uri =
+        URI.create("string:///" + PACKAGE + "/" + name + JavaFileObject.Kind.SOURCE.extension);
+    return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return code;
+      }
+    };
+  }
+
+  /** Delegates to another processor, adding up the time spent in its process() method. */
+  private static final class TimedProcessor implements Processor {
+    private final Processor delegate;
+    private long nanos;
+
+    private TimedProcessor(Processor delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+      return delegate.getSupportedOptions();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return delegate.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return delegate.getSupportedSourceVersion();
+    }
+
+    @Override
+    public void init(ProcessingEnvironment processingEnv) {
+      delegate.init(processingEnv);
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+      long start = System.nanoTime();
+      try {
+        return delegate.process(annotations, roundEnv);
+      } finally {
+        nanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public Iterable<? extends Completion> getCompletions(
+        Element element, AnnotationMirror annotation, ExecutableElement member, String userText) {
+      return delegate.getCompletions(element, annotation, member, userText);
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Measures the bytes allocated on the calling thread by generated code, using {@link
+ * com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()}. Each call is warmed up first,
+ * so that the measurement reflects compiled code.
+ *
+ * <p>Reading values from a template or snapshot must not allocate at all. Other calls have a budget
+ * of bytes per call, a little above what they allocate now. If a change to the generated code
+ * exceeds a budget, either fix the new allocation or raise the budget deliberately.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+public class TestAllocation {
+
+  private static final int WARMUP = 20000;
+  private static final int CALLS = 2000;
+
+  private static com.sun.management.ThreadMXBean threads;
+
+  // results are stored here so that calls can't be optimized away
+  private static Object objectSink;
+  private static int intSink;
+  private static double doubleSink;
+
+  private static DemoClassFactory classFactory;
+  private static DemoInterfaceFactory interfaceFactory;
+  private static PropertiesConfiguration classConfig;
+  private static PropertiesConfiguration interfaceConfig;
+
+  @BeforeClass
+  public static void setup() {
+    assumeTrue(
+        ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t
+            && t.isThreadAllocatedMemorySupported());
+    threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    classFactory = new DemoClassFactory();
+    interfaceFactory = new DemoInterfaceFactory();
+    classConfig = classFactory.toConfig(classFactory.getTemplate());
+    interfaceConfig = interfaceFactory.toConfig(interfaceFactory.getTemplate());
+  }
+
+  /** Reading from a template or snapshot must not allocate. */
+  @Test
+  public void allocationFree() {
+    DemoClass template = classFactory.getTemplate();
+    DemoInterface snapshot = interfaceFactory.fromConfigSnapshot(interfaceConfig);
+    DemoClass lazy = classFactory.fromConfig(classConfig);
+
+    List<String> failures = new ArrayList<>();
+    check(failures, "getTemplate", () -> objectSink = classFactory.getTemplate(), 0);
+    check(failures, "template.intMethod", () -> intSink = template.intMethod(), 0);
+    check(failures, "template.inherited", () -> intSink = template.inherited(), 0);
+    check(failures, "template.doubleMethod", () -> objectSink = template.doubleMethod(), 0);
+    check(failures, "template.StringMethod", () -> objectSink = template.StringMethod(), 0);
+    check(failures, "template.randomClass", () -> objectSink = template.randomClass(), 0);
+    check(failures, "template.doubles", () -> objectSink = template.doubles(), 0);
+    check(failures, "template.randoms", () -> objectSink = template.randoms(), 0);
+    check(
+        failures,
+        "template.included",
+        () -> doubleSink = template.included().includedDoubleMethod(),
+        0);
+    check(failures, "template.hashCode", () -> intSink = template.hashCode(), 0);
+    check(failures, "snapshot.intMethod", () -> intSink = snapshot.intMethod(), 0);
+    check(failures, "snapshot.doubleMethod", () -> objectSink = snapshot.doubleMethod(), 0);
+    check(failures, "snapshot.StringMethod", () -> objectSink = snapshot.StringMethod(), 0);
+    check(failures, "snapshot.randomClass", () -> objectSink = snapshot.randomClass(), 0);
+    check(failures, "snapshot.doubles", () -> objectSink = snapshot.doubles(), 0);
+    check(failures, "snapshot.randoms", () -> objectSink = snapshot.randoms(), 0);
+    check(failures, "snapshot.hashCode", () -> intSink = snapshot.hashCode(), 0);
+    check(failures, "fromConfig.included", () -> objectSink = lazy.included(), 0);
+    assertTrue(String.join("\n", failures), failures.isEmpty());
+  }
+
+  /** Calls that read or build a configuration must stay within their budgets. */
+  @Test
+  public void allocationBudgets() {
+    DemoClass lazy = classFactory.fromConfig(classConfig);
+    DemoInterface template = interfaceFactory.getTemplate();
+    DemoInterface snapshot = interfaceFactory.fromConfigSnapshot(interfaceConfig);
+    StringBuilder sb = new StringBuilder();
+
+    List<String> failures = new ArrayList<>();
+    check(failures, "fromConfig", () -> objectSink = classFactory.fromConfig(classConfig), 64);
+    check(failures, "fromConfig.intMethod", () -> intSink = lazy.intMethod(), 80);
+    check(failures, "fromConfig.doubleMethod", () -> objectSink = lazy.doubleMethod(), 128);
+    check(failures, "fromConfig.StringMethod", () -> objectSink = lazy.StringMethod(), 512);
+    check(failures, "fromConfig.randomClass", () -> objectSink = lazy.randomClass(), 768);
+    check(failures, "fromConfig.doubles", () -> objectSink = lazy.doubles(), 2048);
+    // each call returns a copy of the array
+    check(failures, "snapshot.doubleArray", () -> objectSink = snapshot.doubleArray(), 64);
+    check(
+        failures,
+        "fromConfigSnapshot",
+        () -> objectSink = interfaceFactory.fromConfigSnapshot(interfaceConfig),
+        8000);
+    check(failures, "toConfig", () -> objectSink = interfaceFactory.toConfig(template), 24000);
+    check(
+        failures,
+        "writeTo",
+        () -> {
+          sb.setLength(0);
+          try {
+            interfaceFactory.writeTo(template, sb);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        },
+        1600);
+    assertTrue(String.join("\n", failures), failures.isEmpty());
+  }
+
+  /**
+   * @param failures a message is added here if the call allocates more than budget
+   * @param name name of the call, for messages
+   * @param call call to measure
+   * @param budget maximum mean bytes allocated per call
+   */
+  private static void check(List<String> failures, String name, Runnable call, long budget) {
+    for (int i = 0; i < WARMUP; i++) call.run();
+    long before = threads.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < CALLS; i++) call.run();
+    long perCall = (threads.getCurrentThreadAllocatedBytes() - before) / CALLS;
+    if (perCall > budget)
+      failures.add(String.format("%s: %d bytes per call, budget %d", name, perCall, budget));
+  }
+}
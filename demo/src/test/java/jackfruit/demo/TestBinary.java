@@ -0,0 +1,149 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import jackfruit.demo.DemoEnums.Level;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+
+/** Objects written by writeBinary() are read back unchanged by readBinary(). */
+public class TestBinary {
+
+  @Test
+  public void primitivesAndLists() throws IOException {
+    DemoInterfaceFactory factory = new DemoInterfaceFactory();
+    DemoInterface template = factory.getTemplate();
+    assertEquals(template, factory.fromBinary(factory.toBinary(template)));
+
+    // larger than the chunk allocated before the elements are read
+    double[] doubles = new double[20000];
+    Arrays.setAll(doubles, i -> i * 0.5);
+    DemoInterface large =
+        factory
+            .toBuilder(template)
+            .withDoubleArray(doubles)
+            .withDoubles(List.of(-1., 0., 1.))
+            .withStringMethod("non-Latin-1 é中😀")
+            .build();
+    DemoInterface read = factory.fromBinary(factory.toBinary(large));
+    assertEquals(large, read);
+    assertArrayEquals(doubles, read.doubleArray(), 0);
+    assertEquals("non-Latin-1 é中😀", read.StringMethod());
+
+    DemoInterface empty = factory.toBuilder(template).withDoubleArray(new double[0]).build();
+    assertEquals(0, factory.fromBinary(factory.toBinary(empty)).doubleArray().length);
+  }
+
+  @Test
+  public void nullableBoxedValue() throws IOException {
+    DemoInterfaceFactory factory = new DemoInterfaceFactory();
+    DemoInterface withNull = factory.newBuilder().withDoubleMethod(null).build();
+    DemoInterface read = factory.fromBinary(factory.toBinary(withNull));
+    assertNull(read.doubleMethod());
+    assertEquals(withNull, read);
+  }
+
+  @Test
+  public void setsAndMaps() throws IOException {
+    DemoTablesFactory factory = new DemoTablesFactory();
+    DemoTables template = factory.getTemplate();
+    assertEquals(template, factory.fromBinary(factory.toBinary(template)));
+
+    Set<Integer> primes = new LinkedHashSet<>(List.of(13, 2, 11));
+    Map<String, Double> thresholds = new LinkedHashMap<>();
+    thresholds.put("z", 1.);
+    thresholds.put("a", 0.);
+    DemoTables changed =
+        factory.toBuilder(template).withPrimes(primes).withThresholds(thresholds).build();
+    DemoTables read = factory.fromBinary(factory.toBinary(changed));
+    assertEquals(changed, read);
+    // the order of sets and maps is kept
+    assertEquals(List.of(13, 2, 11), List.copyOf(read.primes()));
+    assertEquals(List.of("z", "a"), List.copyOf(read.thresholds().keySet()));
+    assertEquals(template.counts(), read.counts());
+    assertEquals(template.randoms(), read.randoms());
+  }
+
+  @Test
+  public void enums() throws IOException {
+    DemoEnumsFactory factory = new DemoEnumsFactory();
+    DemoEnums changed =
+        factory
+            .newBuilder()
+            .withLevel(Level.LOW)
+            .withRequired(EnumSet.noneOf(Level.class))
+            .withWeights(Map.of(Level.MEDIUM, 0.5))
+            .build();
+    for (DemoEnums t : List.of(factory.getTemplate(), changed))
+      assertEquals(t, factory.fromBinary(factory.toBinary(t)));
+  }
+
+  @Test
+  public void includes() throws IOException {
+    DemoClassFactory factory = new DemoClassFactory();
+    DemoClassFactory.Builder builder = factory.newBuilder().withIntMethod(7);
+    builder.includedBuilder().withIncludedIntMethod(3);
+    DemoClass changed = builder.build();
+
+    DemoClass read = factory.fromBinary(ByteBuffer.wrap(factory.toBinary(changed)));
+    assertEquals(changed, read);
+    assertEquals(3, read.included().includedIntMethod());
+
+    // the prefix is not written
+    assertEquals(changed, new DemoClassFactory("other").fromBinary(factory.toBinary(changed)));
+  }
+
+  @Test
+  public void fingerprintMismatch() {
+    DemoInterfaceFactory factory = new DemoInterfaceFactory();
+    byte[] bytes = factory.toBinary(factory.getTemplate());
+    assertThrows(InvalidClassException.class, () -> new DemoClassFactory().fromBinary(bytes));
+    assertThrows(InvalidClassException.class, () -> new DemoTablesFactory().fromBinary(bytes));
+  }
+
+  @Test
+  public void truncated() {
+    DemoTablesFactory factory = new DemoTablesFactory();
+    byte[] bytes = factory.toBinary(factory.getTemplate());
+    assertThrows(
+        EOFException.class, () -> factory.fromBinary(Arrays.copyOf(bytes, bytes.length - 1)));
+
+    // the first length is huge, but the data runs out long before it is allocated
+    byte[] huge = Arrays.copyOf(bytes, bytes.length);
+    ByteBuffer.wrap(huge).putInt(Long.BYTES, Integer.MAX_VALUE);
+    assertThrows(EOFException.class, () -> factory.fromBinary(huge));
+  }
+}
@@ -0,0 +1,114 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import jackfruit.demo.DemoEnums.Level;
+import jackfruit.processor.EnumLookup;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.Test;
+
+/** Enums read without a parser, as single values, in lists and sets, and in maps. */
+public class TestEnums {
+
+  private final DemoEnumsFactory factory = new DemoEnumsFactory();
+
+  @Test
+  public void template() {
+    DemoEnums template = factory.getTemplate();
+    assertEquals(Level.MEDIUM, template.level());
+    assertEquals(List.of(Level.HIGH, Level.LOW), template.levels());
+    assertEquals(EnumSet.of(Level.LOW, Level.HIGH), template.allowed());
+    assertEquals(EnumSet.of(Level.MEDIUM), template.required());
+    assertEquals(Map.of(Level.LOW, 0.1, Level.HIGH, 0.9), template.weights());
+    assertEquals(Map.of(Level.LOW, "green", Level.HIGH, "red"), template.colors());
+  }
+
+  /** Names are matched without regard to case, and written using the name of the constant. */
+  @Test
+  public void ignoreCase() {
+    PropertiesConfiguration config = factory.toConfig(factory.getTemplate());
+    config.setProperty("enums.level", " high ");
+    config.setProperty("enums.levels", List.of("low", "Medium"));
+    config.setProperty("enums.allowed", List.of("medium", "MEDIUM", "hIgH"));
+    config.setProperty("enums.required", List.of("Low"));
+    config.setProperty("enums.weights", List.of("medium=0.5"));
+    config.setProperty("enums.colors", List.of("high=blue", "HIGH=black"));
+
+    List<DemoEnums> read = List.of(factory.fromConfig(config), factory.fromConfigSnapshot(config));
+    for (DemoEnums enums : read) {
+      assertEquals(Level.HIGH, enums.level());
+      assertEquals(List.of(Level.LOW, Level.MEDIUM), enums.levels());
+      assertEquals(EnumSet.of(Level.MEDIUM, Level.HIGH), enums.allowed());
+      assertEquals(EnumSet.of(Level.LOW), enums.required());
+      assertEquals(Map.of(Level.MEDIUM, 0.5), enums.weights());
+      // the last value of a repeated key is used
+      assertEquals(Map.of(Level.HIGH, "black"), enums.colors());
+    }
+
+    PropertiesConfiguration written = factory.toConfig(factory.fromConfigSnapshot(config));
+    assertEquals("HIGH", written.getString("enums.level"));
+    assertEquals(List.of("LOW", "MEDIUM"), written.getList(String.class, "enums.levels"));
+  }
+
+  @Test
+  public void unknownName() {
+    PropertiesConfiguration config = factory.toConfig(factory.getTemplate());
+    config.setProperty("enums.level", "highest");
+    assertThrows(RuntimeException.class, () -> factory.fromConfigSnapshot(config));
+    List<String> problems = factory.validate(config);
+    assertEquals(1, problems.size());
+    assertTrue(problems.get(0), problems.get(0).contains("highest"));
+
+    EnumLookup<Level> lookup = EnumLookup.of(Level.class);
+    assertSame(Level.LOW, lookup.fromString("low"));
+    assertThrows(IllegalArgumentException.class, () -> lookup.fromString("lo"));
+  }
+
+  /** Sets and maps can't be changed, and an EnumSet or EnumMap is copied each time. */
+  @Test
+  public void collections() {
+    DemoEnums template = factory.getTemplate();
+    Set<Level> allowed = template.allowed();
+    assertThrows(UnsupportedOperationException.class, () -> allowed.add(Level.MEDIUM));
+    Map<Level, Double> weights = template.weights();
+    assertThrows(UnsupportedOperationException.class, () -> weights.put(Level.MEDIUM, 0.5));
+
+    EnumSet<Level> required = template.required();
+    required.add(Level.HIGH);
+    EnumMap<Level, String> colors = template.colors();
+    colors.clear();
+
+    template = factory.getTemplate();
+    assertEquals(EnumSet.of(Level.MEDIUM), template.required());
+    assertEquals(Map.of(Level.LOW, "green", Level.HIGH, "red"), template.colors());
+    assertEquals(template, factory.fromConfigSnapshot(factory.toConfig(template)));
+  }
+}
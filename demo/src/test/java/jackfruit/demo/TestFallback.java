@@ -0,0 +1,79 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.Test;
+
+/** Missing keys are read from the fallback object, including keys of included types. */
+public class TestFallback {
+
+  private final DemoClassFactory factory = new DemoClassFactory();
+
+  @Test
+  public void missingKeysFromFallback() {
+    DemoClassFactory.Builder builder =
+        factory.toBuilder(factory.getTemplate()).withIntMethod(4).withStringMethod("fallback");
+    builder.includedBuilder().withIncludedIntMethod(5);
+    DemoClass fallback = builder.build();
+
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty("prefix.StringMethod", "from config");
+    config.setProperty("prefix.doubles", List.of("1", "2"));
+    config.setProperty("included.includedDoubleMethod", "2.5");
+
+    DemoClass t = factory.fromConfig(config, fallback);
+    assertEquals(4, t.intMethod());
+    assertEquals("from config", t.StringMethod());
+    assertEquals(List.of(1., 2.), t.doubles());
+    assertEquals(fallback.randoms(), t.randoms());
+    assertEquals(5, t.included().includedIntMethod());
+    assertEquals(2.5, t.included().includedDoubleMethod(), 0);
+    assertEquals(
+        Set.of(
+            "prefix.StringMethod", "prefix.doubles", "included.includedDoubleMethod"),
+        Set.copyOf(factory.diff(fallback, t)));
+  }
+
+  @Test
+  public void withDefaults() {
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty("prefix.key", 7);
+    DemoClass t = factory.fromConfigWithDefaults(config);
+    assertEquals(7, t.intMethod());
+    assertEquals(List.of("prefix.key"), factory.diff(factory.getTemplate(), t));
+    assertEquals(
+        factory.getTemplate(), factory.fromConfigWithDefaults(new PropertiesConfiguration()));
+  }
+
+  /** A value that is present but can't be converted is not replaced by the fallback. */
+  @Test
+  public void invalidValueThrows() {
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty("prefix.key", "not a number");
+    assertThrows(RuntimeException.class, () -> factory.fromConfigWithDefaults(config));
+  }
+}
@@ -0,0 +1,124 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import jackfruit.processor.LayeredLoader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Layers are applied in order, so defaults &lt; file &lt; environment &lt; system properties. The
+ * environment variables are set in the surefire configuration of this module.
+ */
+public class TestLayeredLoader {
+
+  private static final String ENV_PREFIX = "JACKFRUIT_TEST_";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final DemoInterfaceFactory factory = new DemoInterfaceFactory();
+
+  @After
+  public void clearSystemProperties() {
+    System.clearProperty("prefix.StringMethod");
+    System.clearProperty("prefix.doubleArray");
+  }
+
+  @Test
+  public void precedence() throws IOException {
+    assumeTrue(System.getenv(ENV_PREFIX + "PREFIX_KEY") != null);
+    Path file = folder.newFile("app.properties").toPath();
+    Files.writeString(
+        file,
+        "prefix.key = 20\nprefix.doubleMethod = 2.5\nprefix.StringMethod = from file\n",
+        StandardCharsets.ISO_8859_1);
+    System.setProperty("prefix.StringMethod", "from system property");
+    System.setProperty("prefix.doubleArray", " 7 8\t9 ");
+
+    LayeredLoader.Result<DemoInterface> result =
+        new LayeredLoader<>(factory)
+            .addDefaults()
+            .addFile(file)
+            .addOptionalFile(folder.getRoot().toPath().resolve("missing.properties"))
+            .addEnvironment(ENV_PREFIX)
+            .addSystemProperties()
+            .load();
+    DemoInterface t = result.get();
+    DemoInterface template = factory.getTemplate();
+
+    assertEquals(template.randoms(), t.randoms());
+    assertEquals(2.5, t.doubleMethod(), 0);
+    assertEquals(30, t.intMethod());
+    assertEquals(List.of(1.5, 2.5), t.doubles());
+    assertEquals("from system property", t.StringMethod());
+    assertArrayEquals(new double[] {7, 8, 9}, t.doubleArray(), 0);
+
+    assertEquals(LayeredLoader.DEFAULTS, result.getOrigin("prefix.randoms"));
+    assertEquals(file.toString(), result.getOrigin("prefix.doubleMethod"));
+    assertEquals(LayeredLoader.ENVIRONMENT, result.getOrigin("prefix.key"));
+    assertEquals(LayeredLoader.ENVIRONMENT, result.getOrigin("prefix.doubles"));
+    assertEquals(LayeredLoader.SYSTEM_PROPERTIES, result.getOrigin("prefix.StringMethod"));
+    assertEquals(LayeredLoader.SYSTEM_PROPERTIES, result.getOrigin("prefix.doubleArray"));
+    assertNull(result.getOrigin("prefix.unknown"));
+    assertEquals(factory.keys(), List.copyOf(result.getOrigins().keySet()));
+  }
+
+  /** A later layer replaces every value of a key in an earlier layer. */
+  @Test
+  public void laterLayerWins() throws IOException {
+    LayeredLoader<DemoInterface> loader =
+        new LayeredLoader<>(factory)
+            .addDefaults()
+            .add(
+                "first",
+                Map.of("prefix.doubles", List.of("1", "2", "3"), "prefix.key", List.of("1")))
+            .add("second", Map.of("prefix.doubles", List.of("4")));
+    LayeredLoader.Result<DemoInterface> result = loader.load();
+    assertEquals(List.of(4.), result.get().doubles());
+    assertEquals(1, result.get().intMethod());
+    assertEquals("second", result.getOrigin("prefix.doubles"));
+    assertEquals("first", result.getOrigin("prefix.key"));
+
+    // layers are read again by each load
+    System.setProperty("prefix.StringMethod", "changed");
+    assertEquals(factory.getTemplate().StringMethod(), loader.load().get().StringMethod());
+    assertEquals("changed", loader.addSystemProperties().load().get().StringMethod());
+  }
+
+  @Test
+  public void environmentName() {
+    assertEquals("PREFIX_DOUBLEMETHOD", LayeredLoader.environmentName("prefix.doubleMethod"));
+    assertEquals("A_B_C1", LayeredLoader.environmentName("a-b.c1"));
+  }
+}
@@ -0,0 +1,106 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.Test;
+
+/** equals(), hashCode() and toString() of the objects returned by a generated factory. */
+public class TestObjectMethods {
+
+  private final DemoClassFactory factory = new DemoClassFactory();
+
+  @Test
+  public void equalValues() {
+    PropertiesConfiguration config = factory.toConfig(factory.getTemplate());
+    DemoClass template = factory.getTemplate();
+    DemoClass snapshot = factory.fromConfigSnapshot(config);
+    DemoClass live = factory.fromConfig(config);
+
+    assertEquals(template, snapshot);
+    assertEquals(snapshot, template);
+    assertEquals(snapshot, live);
+    assertEquals(live, snapshot);
+    assertEquals(template.hashCode(), snapshot.hashCode());
+    assertEquals(snapshot.hashCode(), live.hashCode());
+  }
+
+  @Test
+  public void differentValues() {
+    DemoClass template = factory.getTemplate();
+    DemoClass changed = factory.toBuilder(template).withIntMethod(4).build();
+    assertNotEquals(template, changed);
+    assertNotEquals(changed, template);
+
+    // a change to an included object
+    DemoClassFactory.Builder builder = factory.toBuilder(template);
+    builder.includedBuilder().withIncludedIntMethod(2);
+    changed = builder.build();
+    assertNotEquals(template, changed);
+    assertNotEquals(template.included(), changed.included());
+
+    assertEquals(template, factory.toBuilder(changed).withIncluded(template.included()).build());
+  }
+
+  /** A subclass has more values, so it is never equal to an object of its superclass. */
+  @Test
+  public void subclass() {
+    DemoClass sub = factory.getTemplate();
+    DemoSuperClass sup = new DemoSuperClassFactory().toBuilder(sub).build();
+    assertEquals(sub.inherited(), sup.inherited());
+    assertEquals(sub.intMethod(), sup.intMethod());
+    assertEquals(sub.randomClass(), sup.randomClass());
+
+    assertNotEquals(sup, sub);
+    assertNotEquals(sub, sup);
+    assertEquals(sup, new DemoSuperClassFactory().toBuilder(sup).build());
+  }
+
+  /** Changing an array returned by a snapshot must not change the snapshot. */
+  @Test
+  public void arraysAreCopied() {
+    DemoInterfaceFactory interfaceFactory = new DemoInterfaceFactory();
+    DemoInterface template = interfaceFactory.getTemplate();
+    int hash = template.hashCode();
+    double[] doubles = template.doubleArray();
+    doubles[0] = 999;
+
+    assertEquals(1.5, interfaceFactory.getTemplate().doubleArray()[0], 0);
+    assertEquals(hash, template.hashCode());
+    assertEquals(
+        template, interfaceFactory.fromConfigSnapshot(interfaceFactory.toConfig(template)));
+  }
+
+  @Test
+  public void toStringValues() {
+    DemoClass template = factory.getTemplate();
+    String s = template.toString();
+    assertTrue(s, s.startsWith("DemoClass[included="));
+    assertTrue(s, s.contains(", intMethod=1, "));
+    assertTrue(s, s.contains(", doubles=[0.0, 5.34, 17.0], "));
+    assertTrue(s, s.endsWith("]"));
+    assertEquals(s, factory.fromConfig(factory.toConfig(template)).toString());
+  }
+}
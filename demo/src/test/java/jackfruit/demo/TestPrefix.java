@@ -0,0 +1,83 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.Test;
+
+/** Keys of a factory and its included types with the default and a supplied prefix. */
+public class TestPrefix {
+
+  /** With the default constructor, included types keep their own prefix. */
+  @Test
+  public void defaultPrefix() {
+    List<String> keys = new DemoClassFactory().keys();
+    assertTrue(keys.toString(), keys.contains("prefix.key"));
+    assertTrue(keys.toString(), keys.contains("included.includedIntMethod"));
+    assertTrue(keys.toString(), keys.contains("included.includedDoubleMethod"));
+    assertFalse(keys.toString(), keys.contains("prefix.included.includedIntMethod"));
+    assertTrue(new DemoClassFactory().isMultiValued("prefix.doubles"));
+    assertFalse(new DemoClassFactory().isMultiValued("included.includedIntMethod"));
+    assertEquals(
+        List.of("included.includedIntMethod", "included.includedDoubleMethod"),
+        new IncludedFactory().keys());
+
+    // an explicit prefix is put in front of the included type's prefix
+    List<String> supplied = new DemoClassFactory(DemoClassFactory.DEFAULT_PREFIX).keys();
+    assertTrue(supplied.toString(), supplied.contains("prefix.included.includedIntMethod"));
+  }
+
+  @Test
+  public void suppliedPrefix() {
+    DemoClassFactory factory = new DemoClassFactory("site1");
+    List<String> keys = factory.keys();
+    assertTrue(keys.toString(), keys.contains("site1.key"));
+    assertTrue(keys.toString(), keys.contains("site1.included.includedIntMethod"));
+    assertEquals(keys, new DemoClassFactory(" site1. ").keys());
+    assertEquals(new DemoClassFactory().keys().size(), keys.size());
+
+    // every key written by toConfig() is one of keys()
+    PropertiesConfiguration config = factory.toConfig(factory.getTemplate());
+    config.getKeys().forEachRemaining(key -> assertTrue(key, keys.contains(key)));
+  }
+
+  @Test
+  public void fromConfig() {
+    DemoClassFactory factory = new DemoClassFactory("site1");
+    PropertiesConfiguration config = factory.toConfig(factory.getTemplate());
+    config.setProperty("site1.included.includedIntMethod", 5);
+
+    assertEquals(5, factory.fromConfig(config).included().includedIntMethod());
+    assertEquals(5, factory.fromConfigSnapshot(config).included().includedIntMethod());
+    assertEquals(
+        List.of("site1.included.includedIntMethod"),
+        factory.diff(factory.getTemplate(), factory.fromConfigSnapshot(config)));
+
+    // a factory with a different prefix finds none of these keys
+    assertEquals(
+        new DemoClassFactory().keys().size(), new DemoClassFactory().validate(config).size());
+  }
+}
@@ -20,13 +20,31 @@ package jackfruit.demo;
  * #L%
  */
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
 import crucible.crust.logging.Log4j2Configurator;
+import jackfruit.processor.ConfigFactory;
 import jackfruit.processor.ConfigProcessor;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaCompiler.CompilationTask;
 import javax.tools.JavaFileObject;
@@ -34,7 +52,9 @@ import javax.tools.JavaFileObject.Kind;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * From <a href=
@@ -44,6 +64,9 @@ import org.junit.Test;
  */
 public class TestProcessor {
 
+  private static final String SERVICES = "META-INF/services/jackfruit.processor.ConfigFactoryIndex";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
 
 
   @Test
@@ -73,6 +96,186 @@ public class TestProcessor {
     }
   }
 
+  /** Compiling the same sources twice must generate identical files. */
+  @Test
+  public void reproducible() throws Exception {
+    Map<String, byte[]> first = generate(true);
+    Map<String, byte[]> second = generate(true);
+    assertTrue(first.containsKey("jackfruit/demo/DemoClassFactory.java"));
+    assertEquals(1, indexes(first).size());
+    assertArrayEquals(
+        (indexes(first).get(0).replace('/', '.').replace(".java", "") + "\n")
+            .getBytes(StandardCharsets.UTF_8),
+        first.get(SERVICES));
+    assertEquals(first.keySet(), second.keySet());
+    for (String name : first.keySet()) assertArrayEquals(name, first.get(name), second.get(name));
+  }
+
+  /** The processor is isolating unless the index is requested. */
+  @Test
+  public void incremental() throws Exception {
+    try (InputStream in =
+        ConfigProcessor.class
+            .getClassLoader()
+            .getResourceAsStream("META-INF/gradle/incremental.annotation.processors")) {
+      assertEquals(
+          ConfigProcessor.class.getName() + ",dynamic",
+          new String(in.readAllBytes(), StandardCharsets.UTF_8).strip());
+    }
+
+    ConfigProcessor processor = new ConfigProcessor();
+    Map<String, byte[]> generated = generate(processor, false);
+    assertTrue(
+        processor.getSupportedOptions().contains("org.gradle.annotation.processing.isolating"));
+    assertTrue(indexes(generated).isEmpty());
+    assertFalse(generated.containsKey(SERVICES));
+
+    processor = new ConfigProcessor();
+    generate(processor, true);
+    assertTrue(
+        processor.getSupportedOptions().contains("org.gradle.annotation.processing.aggregating"));
+  }
+
+  /** The main sources of this module are compiled with the index. */
+  @Test
+  public void forType() {
+    ConfigFactory<DemoInterface> factory = ConfigFactory.forType(DemoInterface.class);
+    assertTrue(factory instanceof DemoInterfaceFactory);
+    assertSame(factory, ConfigFactory.forType(DemoInterface.class));
+    assertEquals(
+        new DemoEnumsFactory().getTemplate(), ConfigFactory.forType(DemoEnums.class).getTemplate());
+    assertThrows(IllegalArgumentException.class, () -> ConfigFactory.forType(String.class));
+  }
+
+  /**
+   * A type compiled separately and loaded by its own class loader, as a plugin would be, is found
+   * after the index of this module has been read. It is in the same package as the demo types, but
+   * its index has a different name.
+   */
+  @Test
+  public void forTypeFromAnotherClassLoader() throws Exception {
+    assertTrue(ConfigFactory.forType(DemoClass.class) instanceof DemoClassFactory);
+
+    try (URLClassLoader loader =
+        compile(
+            folder.newFolder().toPath(),
+            "jackfruit.demo.PluginConfig",
+            "package jackfruit.demo;",
+            "import jackfruit.annotations.*;",
+            "@Jackfruit(prefix = \"plugin\")",
+            "public interface PluginConfig {",
+            "  @DefaultValue(\"3\")",
+            "  int value();",
+            "}")) {
+      Class<?> type = loader.loadClass("jackfruit.demo.PluginConfig");
+      ConfigFactory<?> factory = ConfigFactory.forType(type);
+      assertSame(loader, factory.getClass().getClassLoader());
+      assertEquals(List.of("plugin.value"), factory.keys());
+      assertSame(factory, ConfigFactory.forType(type));
+    }
+  }
+
+  /** Keep the benchmark harness working with a small corpus. */
+  @Test
+  public void benchmarkCorpus() throws Exception {
+    ProcessorBenchmark.Result result =
+        ProcessorBenchmark.run(new ProcessorBenchmark.Corpus(10, 20, 2, 2));
+    // one factory for each type and each shared superclass
+    assertEquals(12, result.files());
+    assertTrue(result.bytes() > 0);
+  }
+
+  /** @return paths of the generated index classes */
+  private static List<String> indexes(Map<String, byte[]> generated) {
+    return generated.keySet().stream()
+        .filter(name -> name.startsWith("jackfruit/demo/" + ConfigProcessor.INDEX_CLASS_PREFIX))
+        .toList();
+  }
+
+  /**
+   * Compile one source file with the processor and the index option, for types that should not be
+   * part of the demo.
+   *
+   * @param dir empty directory for the source and class files
+   * @param className fully qualified name of the type in the source
+   * @param lines lines of the source
+   * @return class loader for the compiled classes, whose parent is the class loader of this test
+   */
+  static URLClassLoader compile(Path dir, String className, String... lines) throws IOException {
+    Path source = dir.resolve("src").resolve(className.replace('.', '/') + ".java");
+    Path out = Files.createDirectories(dir.resolve("out"));
+    Files.createDirectories(source.getParent());
+    Files.writeString(source, String.join("\n", lines));
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null);
+    CompilationTask task =
+        compiler.getTask(
+            null,
+            files,
+            null,
+            List.of(
+                "-classpath",
+                classPath(),
+                "-d",
+                out.toString(),
+                "-A" + ConfigProcessor.INDEX_OPTION + "=true"),
+            null,
+            files.getJavaFileObjects(source));
+    task.setProcessors(List.of(new ConfigProcessor()));
+    assertTrue(task.call());
+    return new URLClassLoader(
+        new URL[] {out.toUri().toURL()}, TestProcessor.class.getClassLoader());
+  }
+
+  private static String classPath() {
+    return System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+  }
+
+  private Map<String, byte[]> generate(boolean index) throws Exception {
+    return generate(new ConfigProcessor(), index);
+  }
+
+  /**
+   * Run the processor on the demo sources without compiling them.
+   *
+   * @return map of each generated file's path to its contents
+   */
+  private Map<String, byte[]> generate(ConfigProcessor processor, boolean index)
+      throws Exception {
+    Path out = folder.newFolder().toPath();
+    List<String> options =
+        List.of(
+            "-proc:only",
+            "-classpath",
+            classPath(),
+            "-s",
+            out.toString(),
+            "-d",
+            out.toString(),
+            "-A" + ConfigProcessor.INDEX_OPTION + "=" + index);
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    CompilationTask task =
+        compiler.getTask(
+            null,
+            null,
+            null,
+            options,
+            null,
+            getSourceFiles(new File(System.getProperty("user.dir"), "src/main/java").getPath()));
+    task.setProcessors(List.of(processor));
+    assertTrue(task.call());
+
+    Map<String, byte[]> generated = new TreeMap<>();
+    try (Stream<Path> paths = Files.walk(out)) {
+      for (Path path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+        String name = out.relativize(path).toString().replace(File.separatorChar, '/');
+        generated.put(name, Files.readAllBytes(path));
+      }
+    }
+    return generated;
+  }
+
   private Iterable<JavaFileObject> getSourceFiles(String p_path) throws Exception {
     JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
     StandardJavaFileManager files = compiler.getStandardFileManager(null, null, null);
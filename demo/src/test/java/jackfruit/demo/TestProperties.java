@@ -0,0 +1,176 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import jackfruit.processor.PropertiesReader;
+import jackfruit.processor.PropertiesWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.io.FileHandler;
+import org.junit.Test;
+
+/**
+ * {@link PropertiesReader} and {@link PropertiesWriter} must read and write properties text the
+ * same way as {@link PropertiesConfiguration}.
+ */
+public class TestProperties {
+
+  /** Each row is a description and properties text. */
+  private static final String[][] READ_CASES = {
+    {"separators", "a=1\nb = 2\nc:3\nd 4\ne\t5\nf  =  6\ng=h=7\n"},
+    {"escapes", "a=tab\\there\\nnewline \\\\ back\\rslash \\q \\\"\nb=\\u00e9\\u4e2d\\u0041\n"},
+    {"continuations", "a=one \\\n    two\\\n\tthree\nb=x\\\\\nc=y\\\\\\\n  z\nd=last\\"},
+    {"repeated keys", "a=1\na=2\nb=3\na=4\n"},
+    {"escaped separators in keys", "a\\=b=1\nc\\:d:2\ne\\ f 3\ng\\\\=4\n\\u0041b=5\n"},
+    {"trailing whitespace", "a = 1   \nb=\t \nc = two words \t\n"},
+    {"continuation before trailing whitespace", "a=x\\ \nb=y\\\t\nc=1\n"},
+    {"empty values", "a=\nb\nc:\nd =\ne=\\\n\n"},
+    {"comments and blank lines", "# comment\n! other\n   # indented\n\n  \na=1 # not a comment\n"},
+    {"line endings", "a=1\r\nb=2\rc=3\r\n\r\nd=4"},
+    {"leading whitespace", "   a = 1\n\t b=2\n\f c=3\n"},
+    {"latin-1", "café=crème ½\nü=ÿ\n"},
+    {"lists are not split", "a=1,2,3\nb=x, y\n"},
+  };
+
+  @Test
+  public void readLatin1() throws Exception {
+    for (String[] c : READ_CASES) assertRead(c[0], c[1], StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  public void readUtf8() throws Exception {
+    for (String[] c : READ_CASES) assertRead(c[0], c[1], StandardCharsets.UTF_8);
+    assertRead("non-latin-1", "中文=値 😀\nkéy=αβ\n", StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void writerMatchesPropertiesConfiguration() throws Exception {
+    Map<String, List<String>> values = values();
+    StringWriter expected = new StringWriter();
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    for (String key : values.keySet()) config.addProperty(key, values.get(key));
+    config.write(expected);
+
+    assertEquals(expected.toString(), write(values));
+  }
+
+  @Test
+  public void writerRoundTrip() throws Exception {
+    Map<String, List<String>> values = values();
+    String text = write(values);
+    assertEquals(values, PropertiesReader.read(encode(text, StandardCharsets.ISO_8859_1)));
+    assertEquals(values, load(text));
+  }
+
+  /** Keys that aren't ISO-8859-1 are escaped when writing to a channel, so they read back. */
+  @Test
+  public void channelRoundTrip() throws Exception {
+    DemoInterfaceFactory factory = new DemoInterfaceFactory("中文.α");
+    DemoInterface t = factory.getTemplate();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    factory.writeTo(t, Channels.newChannel(bytes));
+    String text = bytes.toString(StandardCharsets.ISO_8859_1);
+    assertFalse(text, text.contains("?"));
+    assertTrue(text, text.contains("\\u4E2D\\u6587.\\u03B1.key = "));
+
+    assertEquals(t, factory.fromBytes(ByteBuffer.wrap(bytes.toByteArray())));
+    assertEquals(List.copyOf(load(text).keySet()), factory.keys());
+
+    // without a channel the key is not escaped, as with PropertiesConfiguration
+    StringWriter writer = new StringWriter();
+    factory.writeTo(t, writer);
+    assertTrue(writer.toString().contains("中文.α.key = "));
+  }
+
+  /**
+   * Keys and values that need escaping. As with PropertiesConfiguration, leading whitespace in a
+   * value is not escaped and supplementary characters are not escaped correctly, so neither is
+   * included.
+   */
+  private static Map<String, List<String>> values() {
+    Map<String, List<String>> values = new LinkedHashMap<>();
+    values.put("plain", List.of("value"));
+    values.put("key with spaces", List.of("inner  spaces"));
+    values.put("a=b:c\tt\\d", List.of("x=y:z # not ! a comment"));
+    values.put("repeated", List.of("1", "2", "3"));
+    values.put("empty", List.of(""));
+    values.put("control", List.of("tab\there\nnewline\rreturn\fformfeed\\back"));
+    values.put("non-latin-1", List.of("café 中文 α"));
+    values.put("kéy", List.of("1,2,3"));
+    return values;
+  }
+
+  private static String write(Map<String, List<String>> values) throws IOException {
+    StringWriter text = new StringWriter();
+    PropertiesWriter writer = new PropertiesWriter(text);
+    for (String key : values.keySet()) {
+      writer.key(key, null, 0);
+      for (String value : values.get(key)) writer.value(value);
+    }
+    return text.toString();
+  }
+
+  private static void assertRead(String description, String text, Charset charset)
+      throws ConfigurationException {
+    Map<String, List<String>> expected = load(text);
+    Map<String, List<String>> found = PropertiesReader.read(encode(text, charset), charset);
+    assertEquals(description, expected, found);
+    assertEquals(description, List.copyOf(expected.keySet()), List.copyOf(found.keySet()));
+  }
+
+  /** @return each key and its values, as read by {@link PropertiesConfiguration} */
+  private static Map<String, List<String>> load(String text) throws ConfigurationException {
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    new FileHandler(config).load(new StringReader(text));
+    Map<String, List<String>> values = new LinkedHashMap<>();
+    for (Iterator<String> keys = config.getKeys(); keys.hasNext(); ) {
+      // getList() would drop empty values
+      String key = keys.next();
+      Object value = config.getProperty(key);
+      values.put(
+          key,
+          value instanceof List<?> list
+              ? list.stream().map(String::valueOf).toList()
+              : List.of(String.valueOf(value)));
+    }
+    return values;
+  }
+
+  private static ByteBuffer encode(String text, Charset charset) {
+    return ByteBuffer.wrap(text.getBytes(charset));
+  }
+}
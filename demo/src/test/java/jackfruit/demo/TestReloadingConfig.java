@@ -0,0 +1,105 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import jackfruit.processor.ReloadingConfig;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** A {@link ReloadingConfig} publishes each change to its file once. */
+public class TestReloadingConfig {
+
+  private static final Duration DEBOUNCE = Duration.ofMillis(200);
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final DemoInterfaceFactory factory = new DemoInterfaceFactory();
+
+  @Test
+  public void reload() throws Exception {
+    Path path = folder.getRoot().toPath().resolve("demo.properties");
+    write(path, factory.getTemplate());
+
+    BlockingQueue<DemoInterface> loaded = new LinkedBlockingQueue<>();
+    BlockingQueue<List<String>> changes = new LinkedBlockingQueue<>();
+    try (ReloadingConfig<DemoInterface> config = new ReloadingConfig<>(factory, path, DEBOUNCE)) {
+      config.addListener(loaded::add);
+      config.addChangeListener((t, keys) -> changes.add(keys));
+      assertEquals(factory.getTemplate(), config.get());
+
+      DemoInterface changed = factory.newBuilder().withIntMethod(5).withDoubleMethod(0.5).build();
+      write(path, changed);
+      assertEquals(List.of("prefix.key", "prefix.doubleMethod"), next(changes));
+      assertEquals(changed, next(loaded));
+      assertEquals(changed, config.get());
+      // a burst of events is reloaded once
+      assertNull(changes.poll(DEBOUNCE.toMillis() * 3, TimeUnit.MILLISECONDS));
+      assertNull(loaded.poll());
+
+      // the file is reloaded, but nothing changed
+      write(path, changed);
+      DemoInterface last = next(loaded);
+      assertEquals(changed, last);
+      assertNull(changes.poll(DEBOUNCE.toMillis() * 3, TimeUnit.MILLISECONDS));
+
+      // a value that can't be converted keeps the previous object
+      Files.writeString(path, "prefix.key = one\n", StandardCharsets.ISO_8859_1);
+      assertNull(loaded.poll(DEBOUNCE.toMillis() * 5, TimeUnit.MILLISECONDS));
+      assertSame(last, config.get());
+
+      write(path, factory.getTemplate());
+      assertEquals(factory.getTemplate(), config.reload());
+      assertEquals(List.of("prefix.key", "prefix.doubleMethod"), next(changes));
+    }
+  }
+
+  /** Replace the file in one step, so the watcher never sees it partly written. */
+  private void write(Path path, DemoInterface t) throws IOException {
+    StringWriter text = new StringWriter();
+    factory.writeTo(t, text);
+    Path temporary = Files.createTempFile(folder.getRoot().toPath(), "demo", ".tmp");
+    Files.writeString(temporary, text.toString(), StandardCharsets.ISO_8859_1);
+    Files.move(
+        temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static <E> E next(BlockingQueue<E> queue) throws InterruptedException {
+    E e = queue.poll(10, TimeUnit.SECONDS);
+    if (e == null) throw new AssertionError("Timed out waiting for a reload");
+    return e;
+  }
+}
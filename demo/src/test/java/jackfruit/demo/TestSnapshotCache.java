@@ -0,0 +1,135 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import jackfruit.processor.SnapshotCache;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Reading properties files through a {@link SnapshotCache}. */
+public class TestSnapshotCache {
+
+  private static final FileTime OLD = FileTime.fromMillis(0);
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final DemoInterfaceFactory factory = new DemoInterfaceFactory();
+  private SnapshotCache<DemoInterface> cache;
+  private Path source;
+
+  @Before
+  public void setup() throws IOException {
+    cache = new SnapshotCache<>(factory, folder.getRoot().toPath().resolve("cache"));
+    source = folder.newFile("demo.properties").toPath();
+    write(factory.getTemplate());
+  }
+
+  @Test
+  public void hit() throws IOException {
+    assertEquals(factory.getTemplate(), cache.load(source));
+    Path cacheFile = cacheFile();
+    Files.setLastModifiedTime(cacheFile, OLD);
+
+    // read from the cache file without replacing it
+    assertEquals(factory.getTemplate(), cache.load(source));
+    assertEquals(OLD, Files.getLastModifiedTime(cacheFile));
+  }
+
+  @Test
+  public void miss() throws IOException {
+    assertEquals(List.of(), files());
+    assertEquals(factory.getTemplate(), cache.load(source));
+    assertEquals(1, files().size());
+
+    // another source file has its own cache file
+    Path copy = Files.copy(source, folder.getRoot().toPath().resolve("copy.properties"));
+    assertEquals(factory.getTemplate(), cache.load(copy));
+    assertEquals(2, files().size());
+  }
+
+  @Test
+  public void staleSource() throws IOException {
+    cache.load(source);
+    Files.setLastModifiedTime(cacheFile(), OLD);
+
+    DemoInterface changed = factory.newBuilder().withIntMethod(42).build();
+    write(changed);
+    assertEquals(changed, cache.load(source));
+    assertNotEquals(OLD, Files.getLastModifiedTime(cacheFile()));
+    assertEquals(changed, cache.load(source));
+  }
+
+  @Test
+  public void corruptCacheFile() throws IOException {
+    cache.load(source);
+    Path cacheFile = cacheFile();
+    byte[] bytes = Files.readAllBytes(cacheFile);
+
+    // the hash of the source is correct, but every length in the data is huge
+    byte[] corrupt = bytes.clone();
+    Arrays.fill(corrupt, 40, corrupt.length, (byte) 0x7f);
+    Files.write(cacheFile, corrupt);
+    assertEquals(factory.getTemplate(), cache.load(source));
+    assertEquals(Arrays.toString(bytes), Arrays.toString(Files.readAllBytes(cacheFile)));
+
+    // truncated
+    Files.write(cacheFile, Arrays.copyOf(bytes, bytes.length / 2));
+    assertEquals(factory.getTemplate(), cache.load(source));
+
+    // empty
+    Files.write(cacheFile, new byte[0]);
+    assertEquals(factory.getTemplate(), cache.load(source));
+    assertEquals(Arrays.toString(bytes), Arrays.toString(Files.readAllBytes(cacheFile)));
+  }
+
+  private void write(DemoInterface t) throws IOException {
+    StringWriter text = new StringWriter();
+    factory.writeTo(t, text);
+    Files.writeString(source, text.toString(), StandardCharsets.ISO_8859_1);
+  }
+
+  private Path cacheFile() throws IOException {
+    List<Path> files = files();
+    assertEquals(1, files.size());
+    return files.get(0);
+  }
+
+  private List<Path> files() throws IOException {
+    if (!Files.isDirectory(cache.getDirectory())) return List.of();
+    try (Stream<Path> files = Files.list(cache.getDirectory())) {
+      return files.toList();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.Test;
+
+/** Sets and maps, including map keys read with a &#x0040;KeyParserClass. */
+public class TestTables {
+
+  private final DemoTablesFactory factory = new DemoTablesFactory();
+
+  @Test
+  public void template() {
+    DemoTables template = factory.getTemplate();
+    assertEquals(Set.of(2, 3, 5, 7), template.primes());
+    assertEquals(Map.of("low", 0.25, "high", 0.75), template.thresholds());
+    assertEquals(
+        Map.of(new SomeRandomClass("obj1"), 1, new SomeRandomClass("obj2"), 2), template.counts());
+    assertEquals(
+        Map.of("east", new SomeRandomClass("obj1"), "west", new SomeRandomClass("obj2")),
+        template.randoms());
+  }
+
+  @Test
+  public void parse() {
+    String text =
+        """
+        tables.primes = 11
+        tables.primes = 2
+        tables.primes = 11
+        tables.thresholds = b = 1
+        tables.thresholds = a=0.5
+        tables.thresholds = b=1.5
+        tables.counts = obj3 = 3
+        tables.randoms = north=obj9
+        """;
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty("tables.primes", List.of("11", "2", "11"));
+    config.setProperty("tables.thresholds", List.of("b = 1", "a=0.5", "b=1.5"));
+    config.setProperty("tables.counts", List.of("obj3 = 3"));
+    config.setProperty("tables.randoms", List.of("north=obj=9"));
+
+    for (DemoTables t :
+        List.of(
+            factory.fromBytes(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1))),
+            factory.fromConfig(config),
+            factory.fromConfigSnapshot(config))) {
+      // duplicate elements are dropped, and the order of the file is kept
+      assertEquals(List.of(11, 2), List.copyOf(t.primes()));
+      // the last value of a repeated key is used
+      assertEquals(Map.of("b", 1.5, "a", 0.5), t.thresholds());
+      assertEquals(List.of("b", "a"), List.copyOf(t.thresholds().keySet()));
+      assertEquals(Map.of(new SomeRandomClass("obj3"), 3), t.counts());
+    }
+    // values are split at the first '='
+    assertEquals(
+        Map.of("north", new SomeRandomClass("obj=9")),
+        factory.fromConfigSnapshot(config).randoms());
+  }
+
+  @Test
+  public void badEntry() {
+    PropertiesConfiguration config = factory.toConfig(factory.getTemplate());
+    config.setProperty("tables.thresholds", List.of("missing separator"));
+    assertThrows(IllegalArgumentException.class, () -> factory.fromConfigSnapshot(config));
+  }
+
+  @Test
+  public void writeRoundTrip() throws IOException {
+    DemoTables changed =
+        factory
+            .toBuilder(factory.getTemplate())
+            .withPrimes(Set.of(13))
+            // keys can't contain '=', but may contain spaces and ':'
+            .withCounts(Map.of(new SomeRandomClass("a b:c"), 4))
+            .build();
+
+    PropertiesConfiguration config = factory.toConfig(changed);
+    assertEquals(List.of("13"), config.getList(String.class, "tables.primes"));
+    assertEquals(changed, factory.fromConfigSnapshot(config));
+
+    StringWriter text = new StringWriter();
+    factory.writeTo(changed, text);
+    DemoTables read =
+        factory.fromBytes(
+            ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.ISO_8859_1)));
+    assertEquals(changed, read);
+    assertEquals(changed.randoms(), read.randoms());
+  }
+}
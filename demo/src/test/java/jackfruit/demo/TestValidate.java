@@ -0,0 +1,151 @@
+package jackfruit.demo;
+
+/*-
+ * #%L
+ * jackfruit-demo
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Laboratory
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import jackfruit.processor.ConfigFactory;
+import jackfruit.processor.ConfigValidationException;
+import java.net.URLClassLoader;
+import java.util.List;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Every problem with a configuration is reported by validate(). */
+public class TestValidate {
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final DemoClassFactory factory = new DemoClassFactory();
+
+  @Test
+  public void valid() {
+    assertEquals(List.of(), factory.validate(factory.toConfig(factory.getTemplate())));
+  }
+
+  @Test
+  public void missingKey() {
+    PropertiesConfiguration config = factory.toConfig(factory.getTemplate());
+    config.clearProperty("prefix.StringMethod");
+    assertEquals(List.of("No such key prefix.StringMethod"), factory.validate(config));
+  }
+
+  @Test
+  public void badScalar() {
+    PropertiesConfiguration config = factory.toConfig(factory.getTemplate());
+    config.setProperty("prefix.key", "one");
+    List<String> problems = factory.validate(config);
+    assertEquals(problems.toString(), 1, problems.size());
+    assertTrue(problems.get(0), problems.get(0).startsWith("Invalid value for prefix.key: "));
+  }
+
+  /** Each element that can't be converted is reported, not just the first. */
+  @Test
+  public void badListElements() {
+    PropertiesConfiguration config = factory.toConfig(factory.getTemplate());
+    config.setProperty("prefix.doubles", List.of("1", "x", "2.5", "y"));
+    List<String> problems = factory.validate(config);
+    assertEquals(problems.toString(), 2, problems.size());
+    assertTrue(
+        problems.get(0), problems.get(0).startsWith("Invalid value for prefix.doubles[1]: "));
+    assertTrue(
+        problems.get(1), problems.get(1).startsWith("Invalid value for prefix.doubles[3]: "));
+  }
+
+  @Test
+  public void badArrayAndMapElements() {
+    DemoInterfaceFactory interfaceFactory = new DemoInterfaceFactory();
+    PropertiesConfiguration config = interfaceFactory.toConfig(interfaceFactory.getTemplate());
+    config.setProperty("prefix.doubleArray", List.of("a", "1", "b"));
+    assertEquals(2, interfaceFactory.validate(config).size());
+
+    DemoEnumsFactory enumsFactory = new DemoEnumsFactory();
+    config = enumsFactory.toConfig(enumsFactory.getTemplate());
+    config.setProperty("enums.weights", List.of("low=0.5", "none=1", "high=x", "medium"));
+    List<String> problems = enumsFactory.validate(config);
+    assertEquals(problems.toString(), 3, problems.size());
+    assertTrue(problems.get(0), problems.get(0).startsWith("Invalid value for enums.weights[1]: "));
+    assertTrue(problems.get(2), problems.get(2).contains("Expected key=value, found medium"));
+  }
+
+  @Test
+  public void includedProblems() {
+    PropertiesConfiguration config = factory.toConfig(factory.getTemplate());
+    config.setProperty("prefix.key", "one");
+    config.setProperty("included.includedIntMethod", "two");
+    config.clearProperty("included.includedDoubleMethod");
+    List<String> problems = factory.validate(config);
+    assertEquals(problems.toString(), 3, problems.size());
+    assertTrue(
+        problems.get(1),
+        problems.get(1).startsWith("Invalid value for included.includedIntMethod: "));
+    assertEquals("No such key included.includedDoubleMethod", problems.get(2));
+
+    ConfigValidationException e =
+        assertThrows(ConfigValidationException.class, () -> factory.requireValid(config));
+    assertEquals(problems, e.getProblems());
+  }
+
+  /** Any exception thrown by a parser is a problem with that value, and checking goes on. */
+  @Test
+  public void parserExceptions() throws Exception {
+    try (URLClassLoader loader =
+        TestProcessor.compile(
+            folder.getRoot().toPath(),
+            "jackfruit.demo.DateConfig",
+            "package jackfruit.demo;",
+            "import jackfruit.annotations.*;",
+            "import java.time.LocalDate;",
+            "import java.util.List;",
+            "@Jackfruit(prefix = \"dates\")",
+            "public interface DateConfig {",
+            "  class DateParser implements Parser<LocalDate> {",
+            "    public LocalDate fromString(String s) { return LocalDate.parse(s); }",
+            "    public String toString(LocalDate t) { return t.toString(); }",
+            "  }",
+            "  @DefaultValue(\"2023-01-01\")",
+            "  @ParserClass(DateConfig.DateParser.class)",
+            "  LocalDate start();",
+            "  @DefaultValue(\"2023-01-01 2023-12-25\")",
+            "  @ParserClass(DateConfig.DateParser.class)",
+            "  List<LocalDate> holidays();",
+            "  @DefaultValue(\"1\")",
+            "  int count();",
+            "}")) {
+      ConfigFactory<?> dates = ConfigFactory.forType(loader.loadClass("jackfruit.demo.DateConfig"));
+      PropertiesConfiguration config = new PropertiesConfiguration();
+      config.setProperty("dates.start", "tomorrow");
+      config.setProperty("dates.holidays", List.of("2023-01-01", "christmas"));
+      config.setProperty("dates.count", "one");
+      List<String> problems = dates.validate(config);
+      assertEquals(problems.toString(), 3, problems.size());
+      assertTrue(problems.get(0), problems.get(0).startsWith("Invalid value for dates.start: "));
+      assertTrue(problems.get(0), problems.get(0).contains("DateTimeParseException"));
+      assertTrue(
+          problems.get(1), problems.get(1).startsWith("Invalid value for dates.holidays[1]: "));
+      assertTrue(problems.get(2), problems.get(2).startsWith("Invalid value for dates.count: "));
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package jackfruit.maven;
+
+/*-
+ * #%L
+ * jackfruit-maven-plugin
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One configuration compiled by {@link CompilePropertiesMojo}: an annotated type and the
+ * properties files holding its values.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+public class Compilation {
+
+  private String type;
+  private String name;
+  private String prefix;
+  private List<File> files = new ArrayList<>();
+  private boolean defaults;
+
+  /**
+   * @return fully qualified name of the type annotated with {@link
+   *     jackfruit.annotations.Jackfruit}
+   */
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * @param type fully qualified name of the annotated class
+   */
+  public void setType(String type) {
+    this.type = type;
+  }
+
+  /**
+   * @return name passed to {@link jackfruit.processor.ConfigFactory#fromCompiled(String)} to read
+   *     this configuration
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @param name name of this configuration
+   */
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return prefix of the keys in the files, or null to use the factory's default prefix
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * @param prefix prefix of the keys in the files
+   */
+  public void setPrefix(String prefix) {
+    this.prefix = prefix;
+  }
+
+  /**
+   * @return properties files to read. If a key is in more than one file, the last file wins.
+   */
+  public List<File> getFiles() {
+    return files;
+  }
+
+  /**
+   * @param files properties files to read
+   */
+  public void setFiles(List<File> files) {
+    this.files = files;
+  }
+
+  /**
+   * @return if true, keys missing from every file are given their default values. Otherwise a
+   *     missing key fails the build.
+   */
+  public boolean isDefaults() {
+    return defaults;
+  }
+
+  /**
+   * @param defaults if true, use default values for missing keys
+   */
+  public void setDefaults(boolean defaults) {
+    this.defaults = defaults;
+  }
+}
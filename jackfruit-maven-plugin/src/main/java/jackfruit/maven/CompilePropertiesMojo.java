@@ -0,0 +1,216 @@
+package jackfruit.maven;
+
+/*-
+ * #%L
+ * jackfruit-maven-plugin
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jackfruit.processor.BinaryFormat;
+import jackfruit.processor.ConfigFactory;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.apache.commons.configuration2.CompositeConfiguration;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.commons.configuration2.PropertiesConfiguration;
+import org.apache.commons.configuration2.ex.ConfigurationException;
+import org.apache.commons.configuration2.io.FileHandler;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Convert properties files to objects when the project is built, so they don't have to be parsed
+ * when the application starts. For each {@link Compilation}, the files are read with Apache Commons
+ * Configuration and checked with {@link ConfigFactory#validate(Configuration)} using the factory
+ * generated for the annotated type. Any problem fails the build. The object is then written with
+ * {@link ConfigFactory#writeBinary(Object, java.io.DataOutput)} as a resource next to the factory
+ * class, and read at run time with {@link ConfigFactory#fromCompiled(String)}.
+ *
+ * <p>This runs after the project's classes are compiled, so the factories are loaded from the
+ * output directory and compile class path. The jackfruit classes they use are loaded from this
+ * plugin, so that the factories can be called here. The project must therefore depend on the same
+ * version of jackfruit as this plugin, or the compiled configurations might not be readable at run
+ * time. A different version fails the build.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+@Mojo(
+    name = "compile-properties",
+    defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+    requiresDependencyResolution = ResolutionScope.COMPILE,
+    threadSafe = true)
+public class CompilePropertiesMojo extends AbstractMojo {
+
+  private static final String JACKFRUIT = "edu.jhuapl.ses:jackfruit";
+
+  @Parameter(defaultValue = "${project}", readonly = true, required = true)
+  private MavenProject project;
+
+  @Parameter(defaultValue = "${plugin}", readonly = true, required = true)
+  private PluginDescriptor plugin;
+
+  /** Directory to write the compiled configurations to */
+  @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+  private File outputDirectory;
+
+  /** Configurations to compile */
+  @Parameter(required = true)
+  private List<Compilation> compilations;
+
+  /** Skip this goal */
+  @Parameter(property = "jackfruit.skip", defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    if (skip) {
+      getLog().info("Skipping compile-properties");
+      return;
+    }
+    checkVersion();
+
+    Thread thread = Thread.currentThread();
+    ClassLoader previous = thread.getContextClassLoader();
+    try (URLClassLoader loader = new URLClassLoader(classPath(), getClass().getClassLoader())) {
+      thread.setContextClassLoader(loader);
+      for (Compilation compilation : compilations) compile(loader, compilation);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not close class loader", e);
+    } finally {
+      thread.setContextClassLoader(previous);
+    }
+  }
+
+  /** Fail if the project depends on a different version of jackfruit than this plugin. */
+  private void checkVersion() throws MojoExecutionException {
+    Artifact ours = plugin.getArtifactMap().get(JACKFRUIT);
+    if (ours == null) return;
+    for (Artifact artifact : project.getArtifacts()) {
+      if (!JACKFRUIT.equals(artifact.getGroupId() + ":" + artifact.getArtifactId())) continue;
+      if (!ours.getBaseVersion().equals(artifact.getBaseVersion()))
+        throw new MojoExecutionException(
+            String.format(
+                "The project depends on %s:%s but this plugin uses %s. Use the same version of"
+                    + " jackfruit-maven-plugin as jackfruit.",
+                JACKFRUIT, artifact.getBaseVersion(), ours.getBaseVersion()));
+    }
+  }
+
+  private URL[] classPath() throws MojoExecutionException {
+    try {
+      List<String> elements = project.getCompileClasspathElements();
+      URL[] urls = new URL[elements.size()];
+      for (int i = 0; i < urls.length; i++) urls[i] = new File(elements.get(i)).toURI().toURL();
+      return urls;
+    } catch (DependencyResolutionRequiredException | MalformedURLException e) {
+      throw new MojoExecutionException("Could not build compile class path", e);
+    }
+  }
+
+  private void compile(ClassLoader loader, Compilation compilation)
+      throws MojoExecutionException, MojoFailureException {
+    if (compilation.getType() == null || compilation.getName() == null)
+      throw new MojoExecutionException("Each compilation needs a type and a name");
+    if (compilation.getFiles().isEmpty())
+      throw new MojoExecutionException("No files to compile for " + compilation.getName());
+
+    ConfigFactory<?> factory = newFactory(loader, compilation);
+
+    // CompositeConfiguration returns the first value found, so add the last file first
+    CompositeConfiguration config = new CompositeConfiguration();
+    for (int i = compilation.getFiles().size() - 1; i >= 0; i--) {
+      File file = compilation.getFiles().get(i);
+      PropertiesConfiguration properties = new PropertiesConfiguration();
+      try {
+        new FileHandler(properties).load(file);
+      } catch (ConfigurationException e) {
+        throw new MojoFailureException("Could not read " + file, e);
+      }
+      config.addConfiguration(properties);
+    }
+    if (compilation.isDefaults()) config.addConfiguration(defaults(factory));
+
+    List<String> problems = factory.validate(config);
+    if (!problems.isEmpty()) {
+      StringBuilder message =
+          new StringBuilder(
+              String.format(
+                  "%d problem(s) compiling %s from %s",
+                  problems.size(), compilation.getName(), compilation.getFiles()));
+      for (String problem : problems) message.append(System.lineSeparator()).append(problem);
+      throw new MojoFailureException(message.toString());
+    }
+
+    String resource =
+        BinaryFormat.resourceName(factory.getClass().getName(), compilation.getName());
+    Path path = outputDirectory.toPath().resolve(resource);
+    try {
+      Files.createDirectories(path.getParent());
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+        write(factory, config, new DataOutputStream(out));
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not write " + path, e);
+    }
+    getLog().info(String.format("Compiled %s to %s", compilation.getFiles(), resource));
+  }
+
+  private static <T> Configuration defaults(ConfigFactory<T> factory) {
+    return factory.toConfig(factory.getTemplate());
+  }
+
+  private static <T> void write(
+      ConfigFactory<T> factory, Configuration config, DataOutputStream out) throws IOException {
+    factory.writeBinary(factory.fromConfigSnapshot(config), out);
+  }
+
+  private static ConfigFactory<?> newFactory(ClassLoader loader, Compilation compilation)
+      throws MojoExecutionException {
+    try {
+      Class<?> type = Class.forName(compilation.getType(), false, loader);
+      // generated by ConfigProcessor in the same package as the annotated type
+      String factoryName = type.getPackageName() + "." + type.getSimpleName() + "Factory";
+      Class<?> factoryClass = Class.forName(factoryName, true, loader);
+      Object factory =
+          compilation.getPrefix() == null
+              ? factoryClass.getConstructor().newInstance()
+              : factoryClass.getConstructor(String.class).newInstance(compilation.getPrefix());
+      return (ConfigFactory<?>) factory;
+    } catch (ReflectiveOperationException | ClassCastException e) {
+      throw new MojoExecutionException(
+          "Could not create the factory for " + compilation.getType(), e);
+    }
+  }
+}
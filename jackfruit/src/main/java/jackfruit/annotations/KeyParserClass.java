@@ -0,0 +1,46 @@
+package jackfruit.annotations;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The KeyParserClass annotation specifies a class which implements the {@link Parser} interface to
+ * convert the keys of a {@link java.util.Map} to and from a String. Use {@link ParserClass} for the
+ * values of the map.
+ *
+ * <p>The parser is created in the same way as one from {@link ParserClass}.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface KeyParserClass {
+  Class<?> value();
+
+  /**
+   * @return true if one instance of the parser may be used by multiple threads at the same time.
+   */
+  boolean threadSafe() default false;
+}
@@ -29,10 +29,18 @@ import java.lang.annotation.Target;
  * The ParserClass annotation specifies a class which implements the {@link Parser} interface to
  * convert an object to and from a String.
  *
+ * <p>The generated factory creates the parser once rather than on every use. If threadSafe is true,
+ * a single instance is shared by all threads. Otherwise each thread gets its own instance.
+ *
  * @author Hari.Nair@jhuapl.edu
  */
 @Retention(RetentionPolicy.SOURCE)
 @Target(ElementType.METHOD)
 public @interface ParserClass {
   Class<?> value();
+
+  /**
+   * @return true if one instance of the parser may be used by multiple threads at the same time.
+   */
+  boolean threadSafe() default false;
 }
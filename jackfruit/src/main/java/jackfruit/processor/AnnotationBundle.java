@@ -41,10 +41,51 @@ public abstract class AnnotationBundle {
 
   /**
    * @return the parameterized types, if any of this method (e.g. return String if the annotated
-   *     method returns List&lt;String&gt;)
+   *     method returns List&lt;String&gt;). For an array this is the component type (e.g. double if
+   *     the annotated method returns double[]). For a map this is the key type followed by the value
+   *     type.
    */
   public abstract List<TypeMirror> typeArgs();
 
+  /**
+   * @return true if this method returns a {@link List}
+   */
+  public abstract boolean list();
+
+  /**
+   * @return true if this method returns an array of primitives (e.g. double[])
+   */
+  public abstract boolean primitiveArray();
+
+  /**
+   * @return true if this method returns a {@link java.util.Set}
+   */
+  public abstract boolean set();
+
+  /**
+   * @return true if this method returns a {@link java.util.Map}
+   */
+  public abstract boolean map();
+
+  /**
+   * @return true if this value is stored as one property for each element, as a list, array, set
+   *     or map is.
+   */
+  public boolean multiValued() {
+    return list() || primitiveArray() || set() || map();
+  }
+
+  /**
+   * @return the kind of value returned by this method. For a list, array or set this is the kind of
+   *     each element, and for a map this is the kind of each value.
+   */
+  public abstract ValueKind valueKind();
+
+  /**
+   * @return the kind of each key if this method returns a map
+   */
+  public abstract Optional<ValueKind> keyKind();
+
   /**
    * @return Comment for this configuration parameter. This can be blank.
    */
@@ -67,4 +108,21 @@ public abstract class AnnotationBundle {
    *     {@link jackfruit.annotations.Parser}.
    */
   public abstract Optional<TypeMirror> parserClass();
+
+  /**
+   * @return true if a single instance of {@link #parserClass()} may be shared between threads.
+   */
+  public abstract boolean parserThreadSafe();
+
+  /**
+   * @return If this method returns a map with keys that are not a string or primitive/boxed type,
+   *     this class will convert the keys to and from strings. This class must implement {@link
+   *     jackfruit.annotations.Parser}.
+   */
+  public abstract Optional<TypeMirror> keyParserClass();
+
+  /**
+   * @return true if a single instance of {@link #keyParserClass()} may be shared between threads.
+   */
+  public abstract boolean keyParserThreadSafe();
 }
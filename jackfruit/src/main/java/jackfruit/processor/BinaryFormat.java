@@ -0,0 +1,193 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Helpers for the binary format written by {@link ConfigFactory#writeBinary(Object, DataOutput)}.
+ *
+ * <p>An object is written as the schema fingerprint of its factory, followed by each included
+ * object and then each value in the order the methods are declared. Primitives and boxed values are
+ * written with the {@link DataOutput} methods, so primitive lists and arrays are a length followed
+ * by the elements. Strings, enums and values with a {@link jackfruit.annotations.ParserClass} are
+ * written as a length and UTF-8 bytes. A boxed value that may be null is preceded by a boolean.
+ * Sets and maps are written as a length followed by each element or key and value.
+ *
+ * <p>The fingerprint is computed when the factory is generated, from the key and type of each
+ * value and the names and types of included objects. Reading data written with a different schema
+ * fails with an {@link InvalidClassException}.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+public final class BinaryFormat {
+
+  /** Changed when the layout of the binary format changes, so old data is rejected. */
+  static final String VERSION = "jackfruit-binary-1";
+
+  /**
+   * Largest number of elements allocated before they are read. Lengths in the data are not trusted,
+   * so a corrupt length fails when the data runs out rather than by allocating a huge array.
+   */
+  static final int CHUNK = 8192;
+
+  private BinaryFormat() {}
+
+  /**
+   * Objects compiled from properties files at build time are stored as class path resources next
+   * to the factory class, and read with {@link ConfigFactory#fromCompiled(String)}.
+   *
+   * @param factoryClass fully qualified name of the generated factory
+   * @param name name of the compiled configuration
+   * @return path of the resource, relative to the root of the class path
+   */
+  public static String resourceName(String factoryClass, String name) {
+    return factoryClass.replace('.', '/') + "-" + name + ".bin";
+  }
+
+  /**
+   * @param schema description of the keys and types of a configuration
+   * @return 64 bit FNV-1a hash of the schema, including {@link #VERSION}
+   */
+  static long fingerprint(String schema) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : (VERSION + ";" + schema).getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Read a fingerprint and compare it to the expected value.
+   *
+   * @param in source of the binary data
+   * @param expected fingerprint of the factory reading the data
+   * @param type name of the configuration type, used in the exception message
+   * @throws InvalidClassException if the fingerprint does not match
+   * @throws IOException if the fingerprint can't be read
+   */
+  public static void checkFingerprint(DataInput in, long expected, String type)
+      throws IOException {
+    long found = in.readLong();
+    if (found != expected)
+      throw new InvalidClassException(
+          type,
+          String.format(
+              "schema fingerprint is %016x, expected %016x. The data was written by a different"
+                  + " version of this configuration.",
+              found, expected));
+  }
+
+  /**
+   * @param out destination for the binary data
+   * @param s string to write, which may be null
+   * @throws IOException if the string can't be written
+   */
+  public static void writeString(DataOutput out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * @param in source of the binary data
+   * @return a string written by {@link #writeString(DataOutput, String)}, which may be null
+   * @throws IOException if the string can't be read
+   */
+  public static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) return null;
+    byte[] bytes = new byte[capacity(length, 0)];
+    for (int read = 0; read < length; read = bytes.length) {
+      if (read == bytes.length) bytes = Arrays.copyOf(bytes, capacity(length, read));
+      in.readFully(bytes, read, bytes.length - read);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param in source of the binary data
+   * @return the number of elements in a list, array, set or map
+   * @throws StreamCorruptedException if the length is negative
+   * @throws IOException if the length can't be read
+   */
+  public static int readLength(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) throw new StreamCorruptedException("Negative length " + length);
+    return length;
+  }
+
+  /**
+   * Grow an array or list as its elements are read, so that no more than about twice the space of
+   * the elements actually present is allocated.
+   *
+   * @param length number of elements written in the data
+   * @param read number of elements read so far
+   * @return the next capacity, at most length
+   */
+  public static int capacity(int length, int read) {
+    return (int) Math.min(length, Math.max(CHUNK, 2L * read));
+  }
+
+  /**
+   * An {@link InputStream} reading the remaining bytes of a buffer, used to read binary data from a
+   * memory mapped file. The buffer's position is advanced as bytes are read.
+   */
+  static final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) return 0;
+      if (!buffer.hasRemaining()) return -1;
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable sets and maps used by generated factories for {@link Set} and {@link Map} values. They
+ * are built once when a configuration is read. Elements are held in arrays in the order they were
+ * read, with an open addressing hash table of indices into those arrays, so lookups take constant
+ * time and iteration order matches the configuration file.
+ *
+ * <p>Null elements, keys and values are allowed. Methods that would modify the collection throw
+ * {@link UnsupportedOperationException}.
+ *
+ * <p>Sets of enums and maps with enum keys are stored in an {@link EnumSet} or {@link EnumMap}
+ * instead, which iterate in the order the constants are declared.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+public final class ConfigCollections {
+
+  private ConfigCollections() {}
+
+  /**
+   * @param <E> element type
+   * @param elements elements in iteration order. Later duplicates are ignored.
+   * @return an immutable set of the supplied elements. If elements is already a set returned by
+   *     this method, it is returned as is.
+   */
+  public static <E> Set<E> setOf(Collection<? extends E> elements) {
+    if (elements instanceof CompactSet) {
+      @SuppressWarnings("unchecked")
+      Set<E> set = (Set<E>) elements;
+      return set;
+    }
+    Object[] array = elements.toArray();
+    int[] table = newTable(array.length);
+    int size = 0;
+    for (Object element : array) {
+      if (find(array, table, element) >= 0) continue;
+      array[size] = element;
+      insert(array, table, size++);
+    }
+    return new CompactSet<>(size < array.length ? Arrays.copyOf(array, size) : array, table);
+  }
+
+  /**
+   * @param <K> key type
+   * @param <V> value type
+   * @param keys keys in iteration order
+   * @param values value for each key. If a key appears more than once, its last value is used.
+   * @return an immutable map of the supplied keys and values
+   */
+  public static <K, V> Map<K, V> mapOf(List<? extends K> keys, List<? extends V> values) {
+    if (keys.size() != values.size())
+      throw new IllegalArgumentException(
+          String.format("%d keys but %d values", keys.size(), values.size()));
+    Object[] keyArray = keys.toArray();
+    Object[] valueArray = values.toArray();
+    int[] table = newTable(keyArray.length);
+    int size = 0;
+    for (int i = 0; i < keyArray.length; i++) {
+      int existing = find(keyArray, table, keyArray[i]);
+      if (existing >= 0) {
+        valueArray[existing] = valueArray[i];
+        continue;
+      }
+      keyArray[size] = keyArray[i];
+      valueArray[size] = valueArray[i];
+      insert(keyArray, table, size++);
+    }
+    if (size < keyArray.length) {
+      keyArray = Arrays.copyOf(keyArray, size);
+      valueArray = Arrays.copyOf(valueArray, size);
+    }
+    return new CompactMap<>(keyArray, valueArray, table);
+  }
+
+  /**
+   * @param <K> key type
+   * @param <V> value type
+   * @param map map to copy
+   * @return an immutable map with the same entries, in the same iteration order. If map is already
+   *     a map returned by this class, it is returned as is.
+   */
+  public static <K, V> Map<K, V> mapOf(Map<? extends K, ? extends V> map) {
+    if (map instanceof CompactMap) {
+      @SuppressWarnings("unchecked")
+      Map<K, V> compact = (Map<K, V>) map;
+      return compact;
+    }
+    List<K> keys = new ArrayList<>(map.size());
+    List<V> values = new ArrayList<>(map.size());
+    for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      keys.add(entry.getKey());
+      values.add(entry.getValue());
+    }
+    return mapOf(keys, values);
+  }
+
+  /**
+   * @param <E> enum type
+   * @param type enum class
+   * @param elements elements to copy
+   * @return a new EnumSet holding the supplied elements
+   */
+  public static <E extends Enum<E>> EnumSet<E> enumSetOf(
+      Class<E> type, Collection<? extends E> elements) {
+    EnumSet<E> set = EnumSet.noneOf(type);
+    set.addAll(elements);
+    return set;
+  }
+
+  /**
+   * @param <K> enum key type
+   * @param <V> value type
+   * @param type enum class of the keys
+   * @param keys keys
+   * @param values value for each key. If a key appears more than once, its last value is used.
+   * @return a new EnumMap of the supplied keys and values
+   */
+  public static <K extends Enum<K>, V> EnumMap<K, V> enumMapOf(
+      Class<K> type, List<? extends K> keys, List<? extends V> values) {
+    if (keys.size() != values.size())
+      throw new IllegalArgumentException(
+          String.format("%d keys but %d values", keys.size(), values.size()));
+    EnumMap<K, V> map = new EnumMap<>(type);
+    for (int i = 0; i < keys.size(); i++) map.put(keys.get(i), values.get(i));
+    return map;
+  }
+
+  /**
+   * @param <K> enum key type
+   * @param <V> value type
+   * @param type enum class of the keys
+   * @param map map to copy
+   * @return a new EnumMap with the same entries
+   */
+  public static <K extends Enum<K>, V> EnumMap<K, V> enumMapOf(
+      Class<K> type, Map<? extends K, ? extends V> map) {
+    EnumMap<K, V> copy = new EnumMap<>(type);
+    copy.putAll(map);
+    return copy;
+  }
+
+  /**
+   * @param capacity maximum number of elements
+   * @return a table with a power of two length, at most half full when it holds capacity elements
+   */
+  private static int[] newTable(int capacity) {
+    int length = Integer.highestOneBit(Math.max(1, capacity) * 2 - 1) << 1;
+    return new int[length];
+  }
+
+  private static int hash(Object o) {
+    int h = Objects.hashCode(o);
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return position of o in elements, or -1 if it is not in the table
+   */
+  private static int find(Object[] elements, int[] table, Object o) {
+    int mask = table.length - 1;
+    for (int slot = hash(o) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+      // slots hold one more than the position, so that 0 marks an empty slot
+      int position = table[slot] - 1;
+      if (Objects.equals(elements[position], o)) return position;
+    }
+    return -1;
+  }
+
+  private static void insert(Object[] elements, int[] table, int position) {
+    int mask = table.length - 1;
+    int slot = hash(elements[position]) & mask;
+    while (table[slot] != 0) slot = (slot + 1) & mask;
+    table[slot] = position + 1;
+  }
+
+  private static final class CompactSet<E> extends AbstractSet<E> {
+    private final Object[] elements;
+    private final int[] table;
+
+    private CompactSet(Object[] elements, int[] table) {
+      this.elements = elements;
+      this.table = table;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return find(elements, table, o) >= 0;
+    }
+
+    @Override
+    public int size() {
+      return elements.length;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+      return new ArrayIterator<>(elements);
+    }
+
+    @Override
+    public int hashCode() {
+      int h = 0;
+      for (Object element : elements) h += Objects.hashCode(element);
+      return h;
+    }
+  }
+
+  private static final class CompactMap<K, V> extends AbstractMap<K, V> {
+    private final Object[] keys;
+    private final Object[] values;
+    private final int[] table;
+
+    private CompactMap(Object[] keys, Object[] values, int[] table) {
+      this.keys = keys;
+      this.values = values;
+      this.table = table;
+    }
+
+    @Override
+    public int size() {
+      return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return find(keys, table, key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+      return getOrDefault(key, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+      int position = find(keys, table, key);
+      return position < 0 ? defaultValue : (V) values[position];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+      for (int i = 0; i < keys.length; i++) action.accept((K) keys[i], (V) values[i]);
+    }
+
+    @Override
+    public Set<K> keySet() {
+      return new CompactSet<>(keys, table);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+      return new AbstractSet<>() {
+        @Override
+        public int size() {
+          return keys.length;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+          return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+              return next < keys.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Map.Entry<K, V> next() {
+              if (next >= keys.length) throw new NoSuchElementException();
+              int i = next++;
+              return new AbstractMap.SimpleImmutableEntry<>((K) keys[i], (V) values[i]);
+            }
+          };
+        }
+      };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) return true;
+      if (!(o instanceof Map<?, ?> other) || other.size() != keys.length) return false;
+      for (int i = 0; i < keys.length; i++) {
+        Object value = other.get(keys[i]);
+        if (!Objects.equals(values[i], value) || (value == null && !other.containsKey(keys[i])))
+          return false;
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int h = 0;
+      for (int i = 0; i < keys.length; i++)
+        h += Objects.hashCode(keys[i]) ^ Objects.hashCode(values[i]);
+      return h;
+    }
+  }
+
+  private static final class ArrayIterator<E> implements Iterator<E> {
+    private final Object[] elements;
+    private int next;
+
+    private ArrayIterator(Object[] elements) {
+      this.elements = elements;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < elements.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E next() {
+      if (next >= elements.length) throw new NoSuchElementException();
+      return (E) elements[next++];
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds the factories listed by every {@link ConfigFactoryIndex} visible to a class loader. The
+ * indexes are loaded with the class loader of the requested type the first time a type from that
+ * loader is requested, so types from class loaders created later, such as those of plugins, are
+ * found too. Each factory is constructed the first time it is requested.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+final class ConfigFactories {
+
+  private static final Map<ClassLoader, Map<Class<?>, Supplier<ConfigFactory<?>>>> CONSTRUCTORS =
+      new ConcurrentHashMap<>();
+
+  private static final ClassValue<ConfigFactory<?>> FACTORIES =
+      new ClassValue<>() {
+        @Override
+        protected ConfigFactory<?> computeValue(Class<?> type) {
+          Supplier<ConfigFactory<?>> constructor = constructors(type.getClassLoader()).get(type);
+          if (constructor == null)
+            throw new IllegalArgumentException(
+                String.format(
+                    "No generated factory for %s. Was it compiled with -A%s=true?",
+                    type.getName(), ConfigProcessor.INDEX_OPTION));
+          return constructor.get();
+        }
+      };
+
+  private ConfigFactories() {}
+
+  private static Map<Class<?>, Supplier<ConfigFactory<?>>> constructors(ClassLoader loader) {
+    // types from the bootstrap class loader are never annotated, but look in the system loader
+    if (loader == null) loader = ClassLoader.getSystemClassLoader();
+    return CONSTRUCTORS.computeIfAbsent(loader, ConfigFactories::load);
+  }
+
+  private static Map<Class<?>, Supplier<ConfigFactory<?>>> load(ClassLoader loader) {
+    Map<Class<?>, Supplier<ConfigFactory<?>>> constructors = new HashMap<>();
+    for (ConfigFactoryIndex index : ServiceLoader.load(ConfigFactoryIndex.class, loader))
+      constructors.putAll(index.factories());
+    return constructors;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> ConfigFactory<T> forType(Class<T> type) {
+    return (ConfigFactory<T>) FACTORIES.get(type);
+  }
+}
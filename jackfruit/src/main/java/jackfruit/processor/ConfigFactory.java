@@ -20,6 +20,24 @@ package jackfruit.processor;
  * #L%
  */
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.configuration2.PropertiesConfigurationLayout;
@@ -33,6 +51,22 @@ import org.apache.commons.configuration2.PropertiesConfigurationLayout;
  */
 public interface ConfigFactory<T> {
 
+  /**
+   * Look up the generated factory for an annotated type. When run with -Ajackfruit.index=true,
+   * {@link ConfigProcessor} writes an index of the factories it generates, which is read with
+   * {@link java.util.ServiceLoader} once for each class loader, using the class loader of type.
+   * After that this is a map lookup, and the same factory, with the default prefix, is returned
+   * each time.
+   *
+   * @param <T> configuration class with annotations
+   * @param type configuration class with annotations
+   * @return factory for type
+   * @throws IllegalArgumentException if no factory was generated for type
+   */
+  static <T> ConfigFactory<T> forType(Class<T> type) {
+    return ConfigFactories.forType(type);
+  }
+
   /**
    * @return an object of type T with default values.
    */
@@ -44,6 +78,125 @@ public interface ConfigFactory<T> {
    */
   T fromConfig(Configuration config);
 
+  /**
+   * Unlike {@link #fromConfig(Configuration)}, which returns an object that reads the supplied
+   * configuration each time one of its methods is called, every value is read and converted once
+   * when this method is called. The returned object does not hold a reference to the
+   * configuration, and later changes to the configuration are not reflected in it.
+   *
+   * @param config configuration to translate to an object of type T
+   * @return an immutable object of type T from the supplied Apache Commons {@link Configuration}.
+   */
+  T fromConfigSnapshot(Configuration config);
+
+  /**
+   * Same as {@link #fromConfigSnapshot(Configuration)}, except that a missing key is given the
+   * value from the fallback object instead of throwing an exception. This is useful for partial
+   * configurations that rely on defaults. A value that is present but can't be converted still
+   * throws an exception.
+   *
+   * @param config configuration to translate to an object of type T
+   * @param fallback object supplying the value of each missing key. Its methods are only called
+   *     for keys that are missing. Included objects are read using the fallback's included object.
+   * @return an immutable object of type T from the supplied Apache Commons {@link Configuration}.
+   */
+  T fromConfig(Configuration config, T fallback);
+
+  /**
+   * This is simply a call to {@link #fromConfig(Configuration, Object)} with {@link
+   * #getTemplate()}, so every missing key is given its default value.
+   *
+   * @param config configuration to translate to an object of type T
+   * @return an immutable object of type T from the supplied Apache Commons {@link Configuration}.
+   */
+  default T fromConfigWithDefaults(Configuration config) {
+    return fromConfig(config, getTemplate());
+  }
+
+  /**
+   * Check every key in one pass, including keys of included types and each element of a list or
+   * array. A key is a problem if it is missing or its value can't be converted.
+   *
+   * @param config configuration to check
+   * @return a description of each problem, or an empty list if {@link
+   *     #fromConfigSnapshot(Configuration)} would succeed.
+   */
+  List<String> validate(Configuration config);
+
+  /**
+   * Call {@link #validate(Configuration)}, and throw an exception listing every problem found. Use
+   * this at startup to report all configuration errors at once, rather than one at a time when each
+   * value is first read.
+   *
+   * @param config configuration to check
+   * @throws ConfigValidationException if there are any problems
+   */
+  default void requireValid(Configuration config) {
+    List<String> problems = validate(config);
+    if (!problems.isEmpty()) throw new ConfigValidationException(problems);
+  }
+
+  /**
+   * Build an immutable object of type T from properties that have already been read, e.g. by
+   * {@link PropertiesReader#read(ByteBuffer)}. Keys without this factory's prefix are ignored. If a
+   * key has more than one value, scalar types use the first one.
+   *
+   * @param values map of each key to its values
+   * @return an immutable object of type T from the supplied values.
+   */
+  T fromValues(Map<String, List<String>> values);
+
+  /**
+   * Read a properties file without building an Apache Commons {@link Configuration}. The file is
+   * memory mapped and scanned once by {@link PropertiesReader}. Escapes, line continuations and
+   * repeated keys are handled as {@link PropertiesConfiguration} does, but variable interpolation
+   * and include directives are not supported.
+   *
+   * @param path properties file, in ISO-8859-1
+   * @return an immutable object of type T from the supplied file.
+   * @throws IOException if the file can't be read
+   */
+  default T fromPath(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return fromBytes(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Same as {@link #fromPath(Path)}, reading from a buffer.
+   *
+   * @param bytes properties text, in ISO-8859-1. The buffer's position is not changed.
+   * @return an immutable object of type T from the supplied text.
+   */
+  default T fromBytes(ByteBuffer bytes) {
+    return fromValues(PropertiesReader.read(bytes));
+  }
+
+  /**
+   * @return full keys, including any prefix, of every value of T, including values from included
+   *     types, in the order they are written by {@link #writeTo(Object, PropertiesWriter)}.
+   */
+  List<String> keys();
+
+  /**
+   * @param key full key, including any prefix
+   * @return true if key is one of {@link #keys()} and its value is a list, array, set or map, so
+   *     it may have any number of values.
+   */
+  boolean isMultiValued(String key);
+
+  /**
+   * Compare two objects of type T value by value, including values from included types. Primitive
+   * values are compared directly, primitive arrays by their contents, and other values with {@link
+   * Object#equals(Object)}.
+   *
+   * @param before original object
+   * @param after new object
+   * @return full keys, including any prefix, of the values that differ. This is an empty list if
+   *     nothing has changed.
+   */
+  List<String> diff(T before, T after);
+
   /**
    * @param t object to translate to a configuration
    * @param layout used for formatting the returned PropertiesConfiguration
@@ -61,4 +214,133 @@ public interface ConfigFactory<T> {
   default PropertiesConfiguration toConfig(T t) {
     return toConfig(t, new PropertiesConfigurationLayout());
   }
+
+  /**
+   * Write the supplied object as properties text without building a {@link PropertiesConfiguration}
+   * or {@link PropertiesConfigurationLayout}. The output is the same as writing the result of
+   * {@link #toConfig(Object)}.
+   *
+   * @param t object to write
+   * @param writer destination for the properties text
+   * @throws IOException if the text can't be written
+   */
+  void writeTo(T t, PropertiesWriter writer) throws IOException;
+
+  /**
+   * This is simply a call to {@link #writeTo(Object, PropertiesWriter)} with a new
+   * PropertiesWriter.
+   *
+   * @param t object to write
+   * @param out destination for the properties text
+   * @throws IOException if the text can't be written
+   */
+  default void writeTo(T t, Appendable out) throws IOException {
+    writeTo(t, new PropertiesWriter(out));
+  }
+
+  /**
+   * Same as {@link #writeTo(Object, Appendable)}, encoding the text as ISO-8859-1. Characters in
+   * keys that are not in ISO-8859-1 are written as unicode escapes. The channel is not closed.
+   *
+   * @param t object to write
+   * @param channel destination for the properties text
+   * @throws IOException if the text can't be written
+   */
+  default void writeTo(T t, WritableByteChannel channel) throws IOException {
+    PropertiesWriter.ChannelAppendable out = new PropertiesWriter.ChannelAppendable(channel);
+    writeTo(t, new PropertiesWriter(out, true));
+    out.flush();
+  }
+
+  /**
+   * @return a fingerprint of the keys and types of T, computed when this factory was generated.
+   *     Data written by {@link #writeBinary(Object, DataOutput)} can only be read by a factory with
+   *     the same fingerprint.
+   */
+  long schemaFingerprint();
+
+  /**
+   * Write the supplied object in the binary format described in {@link BinaryFormat}. This is much
+   * faster to read than properties text, and is intended for caching a configuration or sending it
+   * between processes built from the same configuration classes. The prefix is not written.
+   *
+   * @param t object to write
+   * @param out destination for the binary data
+   * @throws IOException if the data can't be written
+   */
+  void writeBinary(T t, DataOutput out) throws IOException;
+
+  /**
+   * Read an object written by {@link #writeBinary(Object, DataOutput)}.
+   *
+   * @param in source of the binary data
+   * @return an immutable object of type T
+   * @throws java.io.InvalidClassException if the data was written with a different {@link
+   *     #schemaFingerprint()}
+   * @throws IOException if the data can't be read
+   */
+  T readBinary(DataInput in) throws IOException;
+
+  /**
+   * This is simply a call to {@link #writeBinary(Object, DataOutput)} with a byte array.
+   *
+   * @param t object to write
+   * @return the binary data
+   */
+  default byte[] toBinary(T t) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      writeBinary(t, new DataOutputStream(bytes));
+    } catch (IOException e) {
+      // not thrown by ByteArrayOutputStream
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * This is simply a call to {@link #readBinary(DataInput)} with a byte array.
+   *
+   * @param bytes binary data
+   * @return an immutable object of type T
+   * @throws IOException if the data can't be read or was written with a different schema
+   */
+  default T fromBinary(byte[] bytes) throws IOException {
+    return readBinary(new DataInputStream(new ByteArrayInputStream(bytes)));
+  }
+
+  /**
+   * Same as {@link #fromBinary(byte[])}, reading from a buffer such as a memory mapped file.
+   *
+   * @param bytes binary data. The buffer's position is not changed.
+   * @return an immutable object of type T
+   * @throws IOException if the data can't be read or was written with a different schema
+   */
+  default T fromBinary(ByteBuffer bytes) throws IOException {
+    return readBinary(
+        new DataInputStream(new BinaryFormat.ByteBufferInputStream(bytes.duplicate())));
+  }
+
+  /**
+   * Read an object compiled from properties files at build time by the compile-properties goal of
+   * jackfruit-maven-plugin. The values were converted and checked when the project was built, so
+   * no text is parsed here. The resource is found with {@link BinaryFormat#resourceName(String,
+   * String)} using the class loader of this factory.
+   *
+   * @param name name of the compiled configuration
+   * @return an immutable object of type T
+   * @throws FileNotFoundException if there is no compiled configuration with this name
+   * @throws IOException if the resource can't be read or was compiled with a different schema
+   */
+  default T fromCompiled(String name) throws IOException {
+    String resource = BinaryFormat.resourceName(getClass().getName(), name);
+    ClassLoader loader = getClass().getClassLoader();
+    try (InputStream in =
+        loader == null
+            ? ClassLoader.getSystemResourceAsStream(resource)
+            : loader.getResourceAsStream(resource)) {
+      if (in == null) throw new FileNotFoundException("No compiled configuration " + resource);
+      return readBinary(new DataInputStream(new BufferedInputStream(in)));
+    }
+  }
 }
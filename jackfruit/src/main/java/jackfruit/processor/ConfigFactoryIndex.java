@@ -0,0 +1,40 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Generated by {@link ConfigProcessor} as a class whose name starts with {@link
+ * ConfigProcessor#INDEX_CLASS_PREFIX}, and registered with {@link java.util.ServiceLoader}. Each
+ * index lists the factories generated in one compilation.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ * @see ConfigFactory#forType(Class)
+ */
+public interface ConfigFactoryIndex {
+
+  /**
+   * @return map of each annotated type to a constructor for its factory
+   */
+  Map<Class<?>, Supplier<ConfigFactory<?>>> factories();
+}
@@ -24,26 +24,31 @@ import com.google.auto.service.AutoService;
 import com.squareup.javapoet.*;
 import jackfruit.JackfruitVersion;
 import jackfruit.annotations.*;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.time.OffsetDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.MirroredTypeException;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.PropertiesConfigurationLayout;
+import org.apache.commons.configuration2.convert.PropertyConverter;
+import org.apache.commons.configuration2.ex.ConversionException;
 
 /**
  * Useful references for writing an annotation processor:
@@ -57,15 +62,40 @@ import org.apache.commons.configuration2.PropertiesConfigurationLayout;
  *       "http://www.javatronic.fr/articles/2014/08/31/how_to_make_sure_javac_is_using_a_specific_annotation_processor.html">http://www.javatronic.fr/articles/2014/08/31/how_to_make_sure_javac_is_using_a_specific_annotation_processor.html</a>
  * </ul>
  *
+ * <p>The generated code depends only on the annotated types, so compiling the same sources twice
+ * gives the same output. By default each factory is generated from a single annotated type, and
+ * this processor reports itself to Gradle as an isolating incremental processor. With the option
+ * -Ajackfruit.index=true an index class listing every factory is also written and registered as a
+ * {@link ConfigFactoryIndex} service, which is needed by {@link ConfigFactory#forType(Class)}. The
+ * index depends on every annotated type, so the processor is then reported as aggregating.
+ *
  * @author Hari.Nair@jhuapl.edu
  */
 @SupportedAnnotationTypes("jackfruit.annotations.Jackfruit")
 @AutoService(Processor.class)
 public class ConfigProcessor extends AbstractProcessor {
 
+  /** Processor option to write a {@link ConfigFactoryIndex} of the generated factories */
+  public static final String INDEX_OPTION = "jackfruit.index";
+
+  /** Start of the name of the index class written in each compilation */
+  public static final String INDEX_CLASS_PREFIX = "JackfruitIndex_";
+
+  // see https://docs.gradle.org/current/userguide/java_plugin.html#sec:incremental_annotation_processing
+  private static final String GRADLE_ISOLATING = "org.gradle.annotation.processing.isolating";
+  private static final String GRADLE_AGGREGATING = "org.gradle.annotation.processing.aggregating";
+
+  private boolean writeIndex;
+
   @Override
   public synchronized void init(ProcessingEnvironment processingEnv) {
     super.init(processingEnv);
+    writeIndex = Boolean.parseBoolean(processingEnv.getOptions().get(INDEX_OPTION));
+  }
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    return Set.of(INDEX_OPTION, writeIndex ? GRADLE_AGGREGATING : GRADLE_ISOLATING);
   }
 
   @Override
@@ -76,6 +106,28 @@ public class ConfigProcessor extends AbstractProcessor {
 
   private List<Class<? extends Annotation>> supportedMethodAnnotations;
   private Messager messager;
+  // names of the parser fields in the factory currently being generated
+  private Map<String, String> parserFields;
+  // annotated types and their factories, from every round, for the index
+  private final SortedMap<ClassName, ClassName> indexEntries = new TreeMap<>();
+  private final List<TypeElement> indexOrigins = new ArrayList<>();
+  private boolean indexWritten;
+  // analysis of each annotated type in the current round, shared by its subclasses
+  private final Map<TypeElement, TypeAnalysis> analyses = new HashMap<>();
+
+  /**
+   * Methods of an annotated type, including those inherited from annotated superclasses.
+   *
+   * @param methods methods annotated with {@link DefaultValue}, by name. An overriding method
+   *     replaces the one it overrides.
+   * @param bundles annotation values for each method in methods, merged with those of the methods
+   *     it overrides
+   * @param included annotation values for each method annotated with {@link Include}
+   */
+  private record TypeAnalysis(
+      Map<Name, ExecutableElement> methods,
+      Map<Name, AnnotationBundle> bundles,
+      Map<Name, AnnotationBundle> included) {}
 
   @Override
   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
@@ -86,9 +138,14 @@ public class ConfigProcessor extends AbstractProcessor {
     supportedMethodAnnotations.add(Include.class);
     supportedMethodAnnotations.add(Key.class);
     supportedMethodAnnotations.add(ParserClass.class);
+    supportedMethodAnnotations.add(KeyParserClass.class);
 
     messager = processingEnv.getMessager();
 
+    // elements and types should not be kept from one round to the next
+    analyses.clear();
+    ConfigProcessorUtils.clearCache(processingEnv);
+
     // find interfaces or abstract classes with the Jackfruit annotation
     List<Element> annotatedElements =
         roundEnv.getElementsAnnotatedWith(Jackfruit.class).stream()
@@ -119,20 +176,10 @@ public class ConfigProcessor extends AbstractProcessor {
 
           // This is the name of the class to create (e.g. ConfigTemplateFactory)
           String factoryName = String.format("%sFactory", annotatedType.getSimpleName());
+          PackageElement pkg = processingEnv.getElementUtils().getPackageOf(annotatedType);
+          ClassName factoryClass = ClassName.get(pkg.getQualifiedName().toString(), factoryName);
 
-          OffsetDateTime now = OffsetDateTime.now();
-          DateTimeFormatter formatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
-
-          AnnotationSpec generated =
-              AnnotationSpec.builder(Generated.class)
-                  .addMember("value", String.format("\"%s\"", JackfruitVersion.packageName))
-                  .addMember("date", String.format("\"%s\"", formatter.format(now)))
-                  .addMember(
-                      "comments",
-                      String.format(
-                          "\"version %s built %s\"",
-                          JackfruitVersion.version, JackfruitVersion.dateString))
-                  .build();
+          AnnotationSpec generated = buildGenerated();
 
           TypeSpec.Builder classBuilder =
               TypeSpec.classBuilder(factoryName)
@@ -147,70 +194,64 @@ public class ConfigProcessor extends AbstractProcessor {
           classBuilder.addField(loggerField);
           */
 
-          // this contains a hierarchy of parent classes
-          List<DeclaredType> classHierarchy = new ArrayList<>();
-          {
-            TypeElement thisElement = annotatedType;
-            TypeMirror superClass = thisElement.getSuperclass();
-            while (superClass.getKind() == TypeKind.DECLARED) {
-              DeclaredType superType = (DeclaredType) superClass;
-              // have to use asElement() here
-              if (superType.asElement().getAnnotation(Jackfruit.class) == null) {
-                break;
-              }
-
-              classHierarchy.add(superType);
-              thisElement = (TypeElement) superType.asElement();
-              superClass = thisElement.getSuperclass();
-            }
-          }
-
-          Collections.reverse(classHierarchy);
-          classHierarchy.add((DeclaredType) annotatedType.asType());
-
-          // create a map of methods annotated with DefaultValue
-          Map<Name, ExecutableElement> enclosedMethods = new LinkedHashMap<>();
-          // the default values for each method
-          Map<Name, AnnotationBundle> defaultAnnotationsMap = new LinkedHashMap<>();
+          // methods from this type and its annotated superclasses
+          TypeAnalysis analysis = analyze(annotatedType);
           // Map of included config types
-          Map<Name, AnnotationBundle> includedMap = new LinkedHashMap<>();
-          for (DeclaredType thisType : classHierarchy) {
-            for (Element e : thisType.asElement().getEnclosedElements()) {
-              if (e.getKind() == ElementKind.METHOD && e instanceof ExecutableElement ex) {
-
-                if (ex.getAnnotation(Include.class) != null) {
-                  AnnotationBundle defaultValues = defaultAnnotationsMap.get(ex.getSimpleName());
-                  AnnotationBundle annotationBundle = buildAnnotationBundle(ex, defaultValues);
-                  includedMap.put(ex.getSimpleName(), annotationBundle);
-                } else if (ex.getAnnotation(DefaultValue.class) != null) {
-                  enclosedMethods.put(ex.getSimpleName(), ex);
-                  AnnotationBundle defaultValues = defaultAnnotationsMap.get(ex.getSimpleName());
-                  AnnotationBundle annotationBundle = buildAnnotationBundle(ex, defaultValues);
-                  defaultAnnotationsMap.put(ex.getSimpleName(), annotationBundle);
-                }
-              }
-            }
-          }
+          Map<Name, AnnotationBundle> includedMap = analysis.included();
 
           // holds the annotation information on each method
           Map<ExecutableElement, AnnotationBundle> annotationsMap = new LinkedHashMap<>();
-          for (ExecutableElement e : enclosedMethods.values()) {
-            AnnotationBundle defaultValues = defaultAnnotationsMap.get(e.getSimpleName());
-            annotationsMap.put(e, buildAnnotationBundle(e, defaultValues));
+          for (ExecutableElement e : analysis.methods().values())
+            annotationsMap.put(e, analysis.bundles().get(e.getSimpleName()));
+
+          // parsers are created once and shared by all instances of the factory
+          parserFields = new LinkedHashMap<>();
+          for (AnnotationBundle bundle : annotationsMap.values()) {
+            FieldSpec parserField = buildParserField(bundle);
+            if (parserField != null) classBuilder.addField(parserField);
+            FieldSpec keyParserField = buildKeyParserField(bundle);
+            if (keyParserField != null) classBuilder.addField(keyParserField);
           }
 
+          // the template is built once and shared by all instances of the factory
+          classBuilder.addField(
+              FieldSpec.builder(tvn, "TEMPLATE", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                  .initializer("newTemplate()")
+                  .build());
+
+          classBuilder.addField(
+              FieldSpec.builder(
+                      String.class,
+                      "DEFAULT_PREFIX",
+                      Modifier.PUBLIC,
+                      Modifier.STATIC,
+                      Modifier.FINAL)
+                  .addJavadoc("Prefix used by the default constructor")
+                  .initializer("$S", prefix)
+                  .build());
+
+          classBuilder.addField(
+              FieldSpec.builder(
+                      long.class,
+                      "SCHEMA_FINGERPRINT",
+                      Modifier.PUBLIC,
+                      Modifier.STATIC,
+                      Modifier.FINAL)
+                  .addJavadoc("Fingerprint of the keys and types written by writeBinary()")
+                  .initializer(
+                      "0x$LL", Long.toHexString(schemaFingerprint(annotationsMap, includedMap)))
+                  .build());
+
           // default constructor; initialize prefix
           String prefixMemberName = "prefix";
           classBuilder.addField(String.class, prefixMemberName, Modifier.PRIVATE, Modifier.FINAL);
-          MethodSpec constructor =
+          MethodSpec.Builder defaultConstructor =
               MethodSpec.constructorBuilder()
                   .addModifiers(Modifier.PUBLIC)
-                  .addStatement("this.$N = $S", prefixMemberName, prefix)
-                  .build();
-          classBuilder.addMethod(constructor);
+                  .addStatement("this.$N = DEFAULT_PREFIX", prefixMemberName);
 
           // add a constructor where caller can set prefix
-          constructor =
+          MethodSpec.Builder prefixConstructor =
               MethodSpec.constructorBuilder()
                   .addModifiers(Modifier.PUBLIC)
                   .addParameter(String.class, prefixMemberName)
@@ -219,14 +260,41 @@ public class ConfigProcessor extends AbstractProcessor {
                   .endControlFlow()
                   .addStatement("$N = $N.strip()", prefixMemberName, prefixMemberName)
                   .addStatement(
-                      "if (!$N.endsWith(\".\")) $N += $S", prefixMemberName, prefixMemberName, ".")
-                  .addStatement("this.$N = $N", prefixMemberName, prefixMemberName)
-                  .build();
-          classBuilder.addMethod(constructor);
+                      "if (!$N.isEmpty() && !$N.endsWith(\".\")) $N += $S",
+                      prefixMemberName,
+                      prefixMemberName,
+                      prefixMemberName,
+                      ".")
+                  .addStatement("this.$N = $N", prefixMemberName, prefixMemberName);
+
+          // one factory for each included type, shared by every object from this factory. With
+          // the default constructor the included factory uses its own prefix, otherwise its
+          // prefix is appended to the one supplied.
+          for (Name name : includedMap.keySet()) {
+            ClassName includedFactory = includedFactoryClass(includedMap.get(name));
+            String fieldName = includedFactoryField(name);
+            classBuilder.addField(includedFactory, fieldName, Modifier.PRIVATE, Modifier.FINAL);
+            defaultConstructor.addStatement("this.$L = new $T()", fieldName, includedFactory);
+            prefixConstructor.addStatement(
+                "this.$L = new $T($N + $T.DEFAULT_PREFIX)",
+                fieldName,
+                includedFactory,
+                prefixMemberName,
+                includedFactory);
+          }
+          classBuilder.addMethod(defaultConstructor.build());
+          classBuilder.addMethod(prefixConstructor.build());
+
+          classBuilder.addMethod(buildNewTemplate(tvn, annotationsMap, includedMap));
 
           // generate the methods from the interface
           List<MethodSpec> methods = new ArrayList<>();
-          for (Method m : ConfigFactory.class.getMethods()) {
+          // getMethods() returns methods in no particular order, so sort them for stable output
+          Method[] factoryMethods = ConfigFactory.class.getMethods();
+          Arrays.sort(
+              factoryMethods,
+              Comparator.comparing(Method::getName).thenComparing(Method::toString));
+          for (Method m : factoryMethods) {
 
             if (m.isDefault()) continue;
 
@@ -237,41 +305,258 @@ public class ConfigProcessor extends AbstractProcessor {
             }
 
             if (m.getName().equals("getTemplate")) {
-              MethodSpec getTemplate = buildGetTemplate(tvn, m, annotationsMap, includedMap);
+              MethodSpec getTemplate = buildGetTemplate(tvn, m);
               methods.add(getTemplate);
             }
 
-            if (m.getName().equals("fromConfig")) {
+            if (m.getName().equals("fromConfig") && m.getParameterCount() == 1) {
               MethodSpec fromConfig =
-                  buildFromConfig(tvn, m, annotationsMap, includedMap, prefixMemberName);
+                  buildFromConfig(
+                      annotatedType, tvn, m, annotationsMap, includedMap, prefixMemberName);
               methods.add(fromConfig);
             }
+
+            if (m.getName().equals("fromConfig") && m.getParameterCount() == 2) {
+              MethodSpec fromConfig =
+                  buildFromConfigWithFallback(tvn, m, annotationsMap, includedMap, prefixMemberName);
+              methods.add(fromConfig);
+            }
+
+            if (m.getName().equals("fromConfigSnapshot")) {
+              MethodSpec fromConfigSnapshot =
+                  buildFromConfigSnapshot(tvn, m, annotationsMap, includedMap, prefixMemberName);
+              methods.add(fromConfigSnapshot);
+            }
+
+            if (m.getName().equals("writeTo")) {
+              MethodSpec writeTo =
+                  buildWriteTo(tvn, m, annotationsMap, includedMap, prefixMemberName);
+              methods.add(writeTo);
+            }
+
+            if (m.getName().equals("diff")) {
+              MethodSpec diff = buildDiff(tvn, m, annotationsMap, includedMap, prefixMemberName);
+              methods.add(diff);
+            }
+
+            if (m.getName().equals("validate")) {
+              MethodSpec validate =
+                  buildValidate(m, annotationsMap, includedMap, prefixMemberName);
+              methods.add(validate);
+            }
+
+            if (m.getName().equals("keys")) {
+              MethodSpec keys = buildKeys(m, annotationsMap, includedMap, prefixMemberName);
+              methods.add(keys);
+            }
+
+            if (m.getName().equals("isMultiValued")) {
+              MethodSpec isMultiValued =
+                  buildIsMultiValued(m, annotationsMap, includedMap, prefixMemberName);
+              methods.add(isMultiValued);
+            }
+
+            if (m.getName().equals("schemaFingerprint")) {
+              methods.add(
+                  MethodSpec.methodBuilder(m.getName())
+                      .addAnnotation(Override.class)
+                      .addModifiers(Modifier.PUBLIC)
+                      .returns(long.class)
+                      .addStatement("return SCHEMA_FINGERPRINT")
+                      .build());
+            }
+
+            if (m.getName().equals("writeBinary")) {
+              MethodSpec writeBinary = buildWriteBinary(tvn, m, annotationsMap, includedMap);
+              methods.add(writeBinary);
+            }
+
+            if (m.getName().equals("readBinary")) {
+              MethodSpec readBinary =
+                  buildReadBinary(annotatedType, tvn, m, annotationsMap, includedMap);
+              methods.add(readBinary);
+            }
+
+            if (m.getName().equals("fromValues")) {
+              MethodSpec fromValues =
+                  buildFromValues(tvn, m, annotationsMap, includedMap, prefixMemberName);
+              methods.add(fromValues);
+            }
           }
 
           methods.addAll(buildWithMethods(tvn, annotationsMap, prefixMemberName));
+          methods.addAll(buildBuilderMethods(factoryClass, tvn));
 
+          methods.addAll(
+              buildValueMethods(factoryClass, annotatedType, tvn, annotationsMap, includedMap));
           classBuilder.addMethods(methods);
+          classBuilder.addType(buildSnapshotClass(annotatedType, tvn, annotationsMap, includedMap));
+          classBuilder.addType(buildBuilderClass(factoryClass, tvn, annotationsMap, includedMap));
           TypeSpec thisClass = classBuilder.build();
 
           // write the source code
-          PackageElement pkg = processingEnv.getElementUtils().getPackageOf(annotatedType);
           JavaFileObject jfo =
-              processingEnv.getFiler().createSourceFile(pkg.getQualifiedName() + "." + factoryName);
+              processingEnv
+                  .getFiler()
+                  .createSourceFile(pkg.getQualifiedName() + "." + factoryName, annotatedType);
           JavaFile javaFile = JavaFile.builder(pkg.toString(), thisClass).build();
           try (PrintWriter pw = new PrintWriter(jfo.openWriter())) {
             javaFile.writeTo(pw);
           }
           messager.printMessage(
               Diagnostic.Kind.NOTE, String.format("wrote %s", javaFile.toJavaFileObject().toUri()));
+
+          indexEntries.put(ClassName.get(annotatedType), factoryClass);
+          indexOrigins.add(annotatedType);
         }
       } catch (IOException e1) {
         messager.printMessage(Diagnostic.Kind.ERROR, e1.getLocalizedMessage());
         return false;
       }
     }
+
+    // write the index once all factories are known, in the first round that finds no new types
+    if (writeIndex
+        && !indexWritten
+        && !indexEntries.isEmpty()
+        && (annotatedElements.isEmpty() || roundEnv.processingOver())) {
+      try {
+        writeIndex();
+      } catch (IOException e1) {
+        messager.printMessage(Diagnostic.Kind.ERROR, e1.getLocalizedMessage());
+        return false;
+      }
+      indexWritten = true;
+    }
+    if (roundEnv.processingOver()) ConfigProcessorUtils.clearCache(processingEnv);
     return true;
   }
 
+  /**
+   * Collect the annotated methods of a type and its superclasses. Superclasses that are not
+   * annotated with {@link Jackfruit} are ignored, along with their own superclasses. Each type is
+   * analyzed once per round, so a superclass shared by several annotated types is only read once.
+   *
+   * @param type annotated type
+   * @return methods of this type, including those inherited from annotated superclasses
+   */
+  private TypeAnalysis analyze(TypeElement type) {
+    TypeAnalysis analysis = analyses.get(type);
+    if (analysis != null) return analysis;
+
+    Map<Name, ExecutableElement> methods = new LinkedHashMap<>();
+    Map<Name, AnnotationBundle> bundles = new LinkedHashMap<>();
+    Map<Name, AnnotationBundle> included = new LinkedHashMap<>();
+
+    TypeMirror superClass = type.getSuperclass();
+    // have to use asElement() here
+    if (superClass.getKind() == TypeKind.DECLARED
+        && ((DeclaredType) superClass).asElement().getAnnotation(Jackfruit.class) != null) {
+      TypeAnalysis parent = analyze((TypeElement) ((DeclaredType) superClass).asElement());
+      methods.putAll(parent.methods());
+      bundles.putAll(parent.bundles());
+      included.putAll(parent.included());
+    }
+
+    for (Element e : type.getEnclosedElements()) {
+      if (e.getKind() == ElementKind.METHOD && e instanceof ExecutableElement ex) {
+        if (ex.getAnnotation(Include.class) != null) {
+          AnnotationBundle defaultValues = bundles.get(ex.getSimpleName());
+          included.put(ex.getSimpleName(), buildAnnotationBundle(ex, defaultValues));
+        } else if (ex.getAnnotation(DefaultValue.class) != null) {
+          methods.put(ex.getSimpleName(), ex);
+          AnnotationBundle defaultValues = bundles.get(ex.getSimpleName());
+          bundles.put(ex.getSimpleName(), buildAnnotationBundle(ex, defaultValues));
+        }
+      }
+    }
+
+    analysis = new TypeAnalysis(methods, bundles, included);
+    analyses.put(type, analysis);
+    return analysis;
+  }
+
+  /**
+   * There is no date member, since a timestamp would make every compilation produce different
+   * output.
+   *
+   * @return the {@link Generated} annotation added to each generated class
+   */
+  private AnnotationSpec buildGenerated() {
+    return AnnotationSpec.builder(Generated.class)
+        .addMember("value", "$S", JackfruitVersion.packageName)
+        .addMember("comments", "$S", "version " + JackfruitVersion.version)
+        .build();
+  }
+
+  /**
+   * Write an index class listing every generated factory, and register it as a {@link
+   * ConfigFactoryIndex} service. The index is put in the package of the first annotated type. Its
+   * name ends with a fingerprint of the types it lists, so compilations that share a package write
+   * different classes and each one is found by {@link java.util.ServiceLoader}.
+   */
+  private void writeIndex() throws IOException {
+    String packageName = indexEntries.firstKey().packageName();
+    String types =
+        indexEntries.keySet().stream()
+            .map(ClassName::reflectionName)
+            .collect(Collectors.joining(";"));
+    ClassName indexClass =
+        ClassName.get(
+            packageName, INDEX_CLASS_PREFIX + Long.toHexString(BinaryFormat.fingerprint(types)));
+
+    TypeName supplierType =
+        ParameterizedTypeName.get(
+            ClassName.get(java.util.function.Supplier.class),
+            ParameterizedTypeName.get(
+                ClassName.get(ConfigFactory.class), WildcardTypeName.subtypeOf(Object.class)));
+    TypeName mapType =
+        ParameterizedTypeName.get(
+            ClassName.get(Map.class),
+            ParameterizedTypeName.get(
+                ClassName.get(Class.class), WildcardTypeName.subtypeOf(Object.class)),
+            supplierType);
+
+    MethodSpec.Builder factories =
+        MethodSpec.methodBuilder("factories")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(mapType)
+            .addStatement("$T factories = new $T<>()", mapType, HashMap.class);
+    for (Map.Entry<ClassName, ClassName> entry : indexEntries.entrySet())
+      factories.addStatement("factories.put($T.class, $T::new)", entry.getKey(), entry.getValue());
+    factories.addStatement("return factories");
+
+    TypeSpec index =
+        TypeSpec.classBuilder(indexClass)
+            .addAnnotation(buildGenerated())
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addSuperinterface(ConfigFactoryIndex.class)
+            .addMethod(factories.build())
+            .build();
+
+    TypeElement[] origins = indexOrigins.toArray(new TypeElement[0]);
+    JavaFileObject jfo =
+        processingEnv.getFiler().createSourceFile(indexClass.canonicalName(), origins);
+    JavaFile javaFile = JavaFile.builder(packageName, index).build();
+    try (PrintWriter pw = new PrintWriter(jfo.openWriter())) {
+      javaFile.writeTo(pw);
+    }
+
+    FileObject services =
+        processingEnv
+            .getFiler()
+            .createResource(
+                StandardLocation.CLASS_OUTPUT,
+                "",
+                "META-INF/services/" + ConfigFactoryIndex.class.getName(),
+                origins);
+    try (PrintWriter pw = new PrintWriter(services.openWriter())) {
+      pw.println(indexClass.reflectionName());
+    }
+    messager.printMessage(Diagnostic.Kind.NOTE, String.format("wrote %s", services.toUri()));
+  }
+
   /**
    * @param e annotated method
    * @param defaultValues default values for annotations - could be from a parent class
@@ -284,12 +569,18 @@ public class ConfigProcessor extends AbstractProcessor {
     builder.key(e.getSimpleName().toString());
     builder.comment("");
     builder.defaultValue("");
+    builder.parserThreadSafe(false);
+    builder.keyParserThreadSafe(false);
     if (defaultValues != null) {
       builder.key(defaultValues.key());
       builder.comment(defaultValues.comment());
       builder.defaultValue(defaultValues.defaultValue());
       if (defaultValues.parserClass().isPresent())
         builder.parserClass(defaultValues.parserClass().get());
+      builder.parserThreadSafe(defaultValues.parserThreadSafe());
+      if (defaultValues.keyParserClass().isPresent())
+        builder.keyParserClass(defaultValues.keyParserClass().get());
+      builder.keyParserThreadSafe(defaultValues.keyParserThreadSafe());
     }
 
     Types types = processingEnv.getTypeUtils();
@@ -297,11 +588,24 @@ public class ConfigProcessor extends AbstractProcessor {
     TypeMirror erasure = types.erasure(returnType);
     builder.erasure(erasure);
 
+    // classify the type once, so code generation doesn't have to compare types again
+    boolean list = ConfigProcessorUtils.isList(erasure, processingEnv);
+    boolean primitiveArray = ConfigProcessorUtils.isPrimitiveArray(erasure, processingEnv);
+    boolean set = ConfigProcessorUtils.isSet(erasure, processingEnv);
+    boolean map = ConfigProcessorUtils.isMap(erasure, processingEnv);
+    builder.list(list);
+    builder.primitiveArray(primitiveArray);
+    builder.set(set);
+    builder.map(map);
+
     List<TypeMirror> typeArgs = new ArrayList<>();
     if (erasure.getKind() == TypeKind.DECLARED) {
       // these are the parameter types for a generic class
       List<? extends TypeMirror> args = ((DeclaredType) returnType).getTypeArguments();
       typeArgs.addAll(args);
+    } else if (primitiveArray) {
+      // store the component type of an array as its type argument
+      typeArgs.add(((ArrayType) erasure).getComponentType());
     } else if (!erasure.getKind().isPrimitive()) {
       // There is a type argument here
       processingEnv
@@ -314,6 +618,13 @@ public class ConfigProcessor extends AbstractProcessor {
     }
 
     builder.addAllTypeArgs(typeArgs);
+    TypeMirror valueType = erasure;
+    if ((list || primitiveArray || set) && !typeArgs.isEmpty()) valueType = typeArgs.get(0);
+    if (map && typeArgs.size() == 2) {
+      valueType = typeArgs.get(1);
+      builder.keyKind(ConfigProcessorUtils.valueKind(typeArgs.get(0), processingEnv));
+    }
+    builder.valueKind(ConfigProcessorUtils.valueKind(valueType, processingEnv));
 
     List<Annotation> methodAnnotations = new ArrayList<>();
     for (var a : supportedMethodAnnotations) methodAnnotations.add(e.getAnnotation(a));
@@ -341,6 +652,16 @@ public class ConfigProcessor extends AbstractProcessor {
           tm = mte.getTypeMirror();
         }
         builder.parserClass(tm);
+        builder.parserThreadSafe(pc.threadSafe());
+      } else if (annotation instanceof KeyParserClass kpc) {
+        TypeMirror tm;
+        try {
+          tm = processingEnv.getElementUtils().getTypeElement(kpc.value().toString()).asType();
+        } catch (MirroredTypeException mte) {
+          tm = mte.getTypeMirror();
+        }
+        builder.keyParserClass(tm);
+        builder.keyParserThreadSafe(kpc.threadSafe());
       } else {
         throw new IllegalArgumentException(
             "Unknown annotation type " + annotation.getClass().getSimpleName());
@@ -348,13 +669,196 @@ public class ConfigProcessor extends AbstractProcessor {
     }
 
     AnnotationBundle bundle = builder.build();
-    if (ConfigProcessorUtils.isList(bundle.erasure(), processingEnv) && bundle.typeArgs().isEmpty())
+    if (bundle.list() && bundle.typeArgs().isEmpty())
       messager.printMessage(
           Diagnostic.Kind.ERROR,
           String.format("No parameter type for List on method %s!", e.getSimpleName()));
+    if (bundle.set() && bundle.typeArgs().isEmpty())
+      messager.printMessage(
+          Diagnostic.Kind.ERROR,
+          String.format("No parameter type for Set on method %s!", e.getSimpleName()));
+    if (bundle.map() && bundle.typeArgs().size() != 2)
+      messager.printMessage(
+          Diagnostic.Kind.ERROR,
+          String.format("No key and value types for Map on method %s!", e.getSimpleName()));
+    if (bundle.keyParserClass().isPresent() && !bundle.map())
+      messager.printMessage(
+          Diagnostic.Kind.ERROR,
+          String.format(
+              "KeyParserClass on method %s, which does not return a Map!", e.getSimpleName()));
     return bundle;
   }
 
+  /**
+   * Create the static field holding the {@link ParserClass} instance used by this bundle. Parsers
+   * declared thread safe are shared by all threads, otherwise each thread gets its own instance
+   * from a {@link ThreadLocal}.
+   *
+   * @param bundle annotation values for a method
+   * @return a new field, or null if the bundle has no parser or its field has already been created
+   */
+  private FieldSpec buildParserField(AnnotationBundle bundle) {
+    if (bundle.parserClass().isPresent())
+      return buildParserField(bundle.parserClass().get(), bundle.parserThreadSafe());
+    if (bundle.valueKind() == ValueKind.ENUM) return buildLookupField(valueType(bundle));
+    return null;
+  }
+
+  /**
+   * Same as {@link #buildParserField(AnnotationBundle)} for the keys of a map.
+   *
+   * @param bundle annotation values for a method
+   * @return a new field, or null if the bundle has no key parser or its field has already been
+   *     created
+   */
+  private FieldSpec buildKeyParserField(AnnotationBundle bundle) {
+    if (bundle.keyParserClass().isPresent())
+      return buildParserField(bundle.keyParserClass().get(), bundle.keyParserThreadSafe());
+    if (bundle.keyKind().orElse(null) == ValueKind.ENUM)
+      return buildLookupField(bundle.typeArgs().get(0));
+    return null;
+  }
+
+  /**
+   * Create the static field holding the {@link EnumLookup} for an enum type. An EnumLookup is
+   * immutable, so one instance is shared by all threads.
+   *
+   * @param enumType enum type
+   * @return a new field, or null if its field has already been created
+   */
+  private FieldSpec buildLookupField(TypeMirror enumType) {
+    String fieldKey = lookupFieldKey(enumType);
+    if (parserFields.containsKey(fieldKey)) return null;
+
+    String simpleName = processingEnv.getTypeUtils().asElement(enumType).getSimpleName().toString();
+    String fieldName =
+        simpleName.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase() + "_LOOKUP";
+    String baseName = fieldName;
+    for (int i = 2; parserFields.containsValue(fieldName); i++) fieldName = baseName + i;
+    parserFields.put(fieldKey, fieldName);
+
+    return FieldSpec.builder(
+            ParameterizedTypeName.get(ClassName.get(EnumLookup.class), TypeName.get(enumType)),
+            fieldName,
+            Modifier.PRIVATE,
+            Modifier.STATIC,
+            Modifier.FINAL)
+        .initializer("$T.of($T.class)", EnumLookup.class, TypeName.get(enumType))
+        .build();
+  }
+
+  private static String lookupFieldKey(TypeMirror enumType) {
+    return "enum:" + enumType;
+  }
+
+  private FieldSpec buildParserField(TypeMirror parser, boolean threadSafe) {
+    String fieldKey = parserFieldKey(parser, threadSafe);
+    if (parserFields.containsKey(fieldKey)) return null;
+
+    String simpleName = processingEnv.getTypeUtils().asElement(parser).getSimpleName().toString();
+    String fieldName = simpleName.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    if (!threadSafe) fieldName += "_LOCAL";
+    // different parser classes may have the same simple name
+    String baseName = fieldName;
+    for (int i = 2; parserFields.containsValue(fieldName); i++) fieldName = baseName + i;
+    parserFields.put(fieldKey, fieldName);
+
+    if (threadSafe)
+      return FieldSpec.builder(
+              TypeName.get(parser), fieldName, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+          .initializer("new $T()", parser)
+          .build();
+
+    return FieldSpec.builder(
+            ParameterizedTypeName.get(ClassName.get(ThreadLocal.class), TypeName.get(parser)),
+            fieldName,
+            Modifier.PRIVATE,
+            Modifier.STATIC,
+            Modifier.FINAL)
+        .initializer("$T.withInitial($T::new)", ThreadLocal.class, parser)
+        .build();
+  }
+
+  /**
+   * @param bundle annotation values for a method with a {@link ParserClass} annotation
+   * @return an expression evaluating to the parser instance for this bundle
+   */
+  private CodeBlock parserInstance(AnnotationBundle bundle) {
+    if (bundle.parserClass().isEmpty())
+      return CodeBlock.of("$L", parserFields.get(lookupFieldKey(valueType(bundle))));
+    return parserInstance(bundle.parserClass().get(), bundle.parserThreadSafe());
+  }
+
+  /**
+   * @param bundle annotation values for a method returning a map with a {@link KeyParserClass}
+   *     annotation or enum keys
+   * @return an expression evaluating to the key parser instance for this bundle
+   */
+  private CodeBlock keyParserInstance(AnnotationBundle bundle) {
+    if (bundle.keyParserClass().isEmpty())
+      return CodeBlock.of("$L", parserFields.get(lookupFieldKey(bundle.typeArgs().get(0))));
+    return parserInstance(bundle.keyParserClass().get(), bundle.keyParserThreadSafe());
+  }
+
+  /**
+   * @param bundle annotation values for a method
+   * @return true if values are converted with a {@link Parser}: either the {@link ParserClass},
+   *     or an {@link EnumLookup} for an enum
+   */
+  private static boolean hasParser(AnnotationBundle bundle) {
+    return bundle.parserClass().isPresent() || bundle.valueKind() == ValueKind.ENUM;
+  }
+
+  /**
+   * @param bundle annotation values for a method returning a map
+   * @return true if keys are converted with a {@link Parser}: either the {@link KeyParserClass},
+   *     or an {@link EnumLookup} for an enum
+   */
+  private static boolean hasKeyParser(AnnotationBundle bundle) {
+    return bundle.keyParserClass().isPresent() || bundle.keyKind().orElse(null) == ValueKind.ENUM;
+  }
+
+  /**
+   * @param bundle annotation values for a method
+   * @return the type of a scalar value, of an element of a list, array or set, or of a map value
+   */
+  private static TypeMirror valueType(AnnotationBundle bundle) {
+    if (bundle.map()) return bundle.typeArgs().get(1);
+    if (bundle.multiValued()) return bundle.typeArgs().get(0);
+    return bundle.erasure();
+  }
+
+  /**
+   * Add a statement declaring a local variable holding the parser for this bundle's values.
+   *
+   * @param builder method to add the statement to
+   * @param method annotated method
+   * @param bundle annotation values for this method
+   * @return name of the local variable, or null if values are not converted with a parser
+   */
+  private String addParserLocal(
+      MethodSpec.Builder builder, ExecutableElement method, AnnotationBundle bundle) {
+    if (!hasParser(bundle)) return null;
+    TypeName parserType =
+        bundle.parserClass().isPresent()
+            ? TypeName.get(bundle.parserClass().get())
+            : ParameterizedTypeName.get(
+                ClassName.get(EnumLookup.class), TypeName.get(valueType(bundle)));
+    String parserName = method.getSimpleName() + "Parser";
+    builder.addStatement("$T $L = $L", parserType, parserName, parserInstance(bundle));
+    return parserName;
+  }
+
+  private CodeBlock parserInstance(TypeMirror parser, boolean threadSafe) {
+    String fieldName = parserFields.get(parserFieldKey(parser, threadSafe));
+    if (threadSafe) return CodeBlock.of("$L", fieldName);
+    return CodeBlock.of("$L.get()", fieldName);
+  }
+
+  private static String parserFieldKey(TypeMirror parser, boolean threadSafe) {
+    return parser.toString() + (threadSafe ? "" : ":local");
+  }
+
   /**
    * Create the {@link ConfigFactory#toConfig(Object, PropertiesConfigurationLayout)} method.
    *
@@ -405,16 +909,10 @@ public class ConfigProcessor extends AbstractProcessor {
         needBlank = false;
       }
 
-      TypeMirror parser;
-      String parserName = null;
-      if (ab.parserClass().isPresent()) {
-        parser = ab.parserClass().get();
-        parserName = method.getSimpleName() + "Parser";
-        methodBuilder.addStatement("$T " + parserName + " = new $T()", parser, parser);
-      }
+      String parserName = addParserLocal(methodBuilder, method, ab);
 
-      if (ConfigProcessorUtils.isList(ab.erasure(), processingEnv)) {
-        // if it's a list, store a List<String> in the Apache configuration
+      if (ab.multiValued()) {
+        // if it is a list, array, set or map, store a List<String> in the Apache configuration
         TypeVariableName stringType = TypeVariableName.get(java.lang.String.class.getName());
         ParameterizedTypeName listType =
             ParameterizedTypeName.get(ClassName.get(java.util.List.class), stringType);
@@ -422,40 +920,15 @@ public class ConfigProcessor extends AbstractProcessor {
             ParameterizedTypeName.get(ClassName.get(java.util.ArrayList.class), stringType);
         String listName = method.getSimpleName() + "List";
         methodBuilder.addStatement("$T " + listName + " = new $T()", listType, arrayListType);
-        methodBuilder.beginControlFlow("for (var element : t.$L())", method.getSimpleName());
-        if (ab.parserClass().isPresent()) {
-          methodBuilder.addStatement("$L.add($L.toString(element))", listName, parserName);
-        } else {
-          TypeMirror typeArg = ab.typeArgs().get(0);
-          if (ConfigProcessorUtils.isByte(typeArg, processingEnv))
-            methodBuilder.addStatement(
-                "$L.add($T.toString(element))", listName, java.lang.Byte.class);
-          if (ConfigProcessorUtils.isBoolean(typeArg, processingEnv))
-            methodBuilder.addStatement(
-                "$L.add($T.toString(element))", listName, java.lang.Boolean.class);
-          if (ConfigProcessorUtils.isDouble(typeArg, processingEnv))
-            methodBuilder.addStatement(
-                "$L.add($T.toString(element))", listName, java.lang.Double.class);
-          if (ConfigProcessorUtils.isFloat(typeArg, processingEnv))
-            methodBuilder.addStatement(
-                "$L.add($T.toString(element))", listName, java.lang.Float.class);
-          if (ConfigProcessorUtils.isInteger(typeArg, processingEnv))
-            methodBuilder.addStatement(
-                "$L.add($T.toString(element))", listName, java.lang.Integer.class);
-          if (ConfigProcessorUtils.isLong(typeArg, processingEnv))
-            methodBuilder.addStatement(
-                "$L.add($T.toString(element))", listName, java.lang.Long.class);
-          if (ConfigProcessorUtils.isShort(typeArg, processingEnv))
-            methodBuilder.addStatement(
-                "$L.add($T.toString(element))", listName, java.lang.Short.class);
-          if (ConfigProcessorUtils.isString(typeArg, processingEnv))
-            methodBuilder.addStatement("$L.add(element)", listName);
-        }
+        methodBuilder.beginControlFlow(
+            "for (var element : $L)", elements(ab, CodeBlock.of("t.$L()", method.getSimpleName())));
+        methodBuilder.addStatement(
+            "$L.add($L)", listName, formatElement(ab, parserName, "element"));
         methodBuilder.endControlFlow();
         methodBuilder.addStatement(
             "config.setProperty($N + $S, $L)", prefixMemberName, key, listName);
       } else {
-        if (ab.parserClass().isPresent()) {
+        if (parserName != null) {
           // store the serialized string as the property
           methodBuilder.addStatement(
               "config.setProperty($N + $S, $L.toString($N.$L()))",
@@ -480,12 +953,9 @@ public class ConfigProcessor extends AbstractProcessor {
     }
 
     // add included classes
-    Types types = processingEnv.getTypeUtils();
     for (Name name : includedMap.keySet()) {
-      AnnotationBundle bundle = includedMap.get(name);
-      String className = types.asElement(bundle.erasure()).getSimpleName().toString();
       methodBuilder.addStatement(
-          "config.append(new $LFactory().toConfig(t.$L(), layout))", className, name);
+          "config.append($L.toConfig(t.$L(), layout))", includedFactoryField(name), name);
     }
 
     methodBuilder.addCode("return config;");
@@ -494,266 +964,2099 @@ public class ConfigProcessor extends AbstractProcessor {
   }
 
   /**
-   * Create the {@link ConfigFactory#getTemplate()} method.
+   * Create the {@link ConfigFactory#writeTo(Object, PropertiesWriter)} method. Keys, comments and
+   * blank lines are written in the same order as {@link #buildToConfig(TypeVariableName, Method,
+   * Map, Map, String)} adds them to the configuration and layout.
    *
    * @param tvn the type variable name representing the generic type of the object being processed.
    * @param m the method being processed.
    * @param annotationsMap a map containing methods and associated metadata.
-   * @return a {@link MethodSpec} that returns a template object, populated by the default values.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @param prefixMemberName a string representing the prefix when generating configuration keys.
+   * @return a {@link MethodSpec} instance representing the generated method for writing an object
+   *     as properties text.
    */
-  private MethodSpec buildGetTemplate(
+  private MethodSpec buildWriteTo(
       TypeVariableName tvn,
       Method m,
       Map<ExecutableElement, AnnotationBundle> annotationsMap,
-      Map<Name, AnnotationBundle> includedMap) {
-
-    Types types = processingEnv.getTypeUtils();
+      Map<Name, AnnotationBundle> includedMap,
+      String prefixMemberName) {
+    ParameterSpec ps = ParameterSpec.builder(tvn, "t").build();
 
-    // this builds the getTemplate() method
     MethodSpec.Builder methodBuilder =
         MethodSpec.methodBuilder(m.getName())
             .addAnnotation(Override.class)
             .addModifiers(Modifier.PUBLIC)
-            .returns(tvn);
-    TypeSpec.Builder typeBuilder = TypeSpec.anonymousClassBuilder("").addSuperinterface(tvn);
+            .addParameter(ps)
+            .addParameter(PropertiesWriter.class, "writer")
+            .addException(IOException.class);
 
-    for (Name name : includedMap.keySet()) {
-      AnnotationBundle bundle = includedMap.get(name);
-
-      MethodSpec.Builder builder =
-          MethodSpec.methodBuilder(name.toString())
-              .addModifiers(Modifier.PUBLIC)
-              .addAnnotation(Override.class)
-              .returns(TypeName.get(bundle.erasure()))
-              .addJavadoc(bundle.comment());
+    int blankLines = 1;
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle ab = annotationsMap.get(method);
+      String comment = ab.comment().isEmpty() ? null : ab.comment();
+      methodBuilder.addStatement(
+          "writer.key($N + $S, $S, $L)", prefixMemberName, ab.key(), comment, blankLines);
+      blankLines = 0;
 
-      builder.addStatement(
-          "return new $LFactory().getTemplate()",
-          types.asElement(bundle.erasure()).getSimpleName());
+      String parserName = addParserLocal(methodBuilder, method, ab);
 
-      typeBuilder.addMethod(builder.build());
+      if (ab.multiValued()) {
+        methodBuilder.beginControlFlow(
+            "for (var element : $L)",
+            elements(ab, CodeBlock.of("$N.$L()", ps, method.getSimpleName())));
+        methodBuilder.addStatement(
+            "writer.value($L)", formatElement(ab, parserName, "element"));
+        methodBuilder.endControlFlow();
+      } else if (parserName != null) {
+        methodBuilder.addStatement(
+            "writer.value($L.toString($N.$L()))", parserName, ps, method.getSimpleName());
+      } else {
+        methodBuilder.addStatement("writer.value($N.$L())", ps, method.getSimpleName());
+      }
     }
 
-    for (ExecutableElement method : annotationsMap.keySet()) {
-      AnnotationBundle bundle = annotationsMap.get(method);
-
-      // this builds the method on the anonymous class
-      MethodSpec.Builder builder =
-          MethodSpec.methodBuilder(method.getSimpleName().toString())
-              .addModifiers(Modifier.PUBLIC)
-              .addAnnotation(Override.class)
-              .returns(TypeName.get(method.getReturnType()))
-              .addJavadoc(bundle.comment());
+    for (Name name : includedMap.keySet())
+      methodBuilder.addStatement(
+          "$L.writeTo($N.$L(), writer)", includedFactoryField(name), ps, name);
 
-      TypeMirror parser;
-      String parserName = null;
-      if (bundle.parserClass().isPresent()) {
-        parser = bundle.parserClass().get();
-        parserName = method.getSimpleName() + "Parser";
-        builder.addStatement("$T $L = new $T()", parser, parserName, parser);
-      }
+    return methodBuilder.build();
+  }
 
-      if (ConfigProcessorUtils.isList(bundle.erasure(), processingEnv)) {
+  /**
+   * The schema lists the name and type of each included object, then the key and type of each
+   * value, in the order they are written by {@link #buildWriteBinary(TypeVariableName, Method, Map,
+   * Map)}. The prefix is not part of the schema.
+   *
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @return fingerprint of the schema, from {@link BinaryFormat#fingerprint(String)}
+   */
+  private static long schemaFingerprint(
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap) {
+    StringBuilder schema = new StringBuilder();
+    for (Name name : includedMap.keySet())
+      schema
+          .append("include ")
+          .append(name)
+          .append(':')
+          .append(includedMap.get(name).erasure())
+          .append(';');
+    for (ExecutableElement method : annotationsMap.keySet())
+      schema
+          .append(annotationsMap.get(method).key())
+          .append(':')
+          .append(method.getReturnType())
+          .append(';');
+    return BinaryFormat.fingerprint(schema.toString());
+  }
 
-        TypeName argType = TypeName.get(bundle.typeArgs().get(0));
-        ParameterizedTypeName listType =
-            ParameterizedTypeName.get(ClassName.get(java.util.List.class), argType);
-        ParameterizedTypeName arrayListType =
-            ParameterizedTypeName.get(ClassName.get(java.util.ArrayList.class), argType);
-        String listName = method.getSimpleName() + "List";
-        builder.addStatement("$T " + listName + " = new $T()", listType, arrayListType);
+  /**
+   * Create the {@link ConfigFactory#writeBinary(Object, DataOutput)} method. The layout is
+   * described in {@link BinaryFormat}.
+   *
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param m the method being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @return a {@link MethodSpec} instance representing the generated method for writing an object
+   *     in the binary format.
+   */
+  private MethodSpec buildWriteBinary(
+      TypeVariableName tvn,
+      Method m,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap) {
+    MethodSpec.Builder methodBuilder =
+        MethodSpec.methodBuilder(m.getName())
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(tvn, "t")
+            .addParameter(DataOutput.class, "out")
+            .addException(IOException.class);
 
-        builder.addStatement(
-            "String [] parts = ($S).split($S)", bundle.defaultValue(), "[\\n\\r\\s]+");
-        builder.beginControlFlow("for (String part : parts)");
-        builder.beginControlFlow("if (part.trim().length() > 0)");
-        if (bundle.parserClass().isPresent()) {
-          builder.addStatement("$L.add($L.fromString(part))", listName, parserName);
-        } else {
-          TypeMirror typeArg = bundle.typeArgs().get(0);
-          if (ConfigProcessorUtils.isByte(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Byte.class);
-          if (ConfigProcessorUtils.isBoolean(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Boolean.class);
-          if (ConfigProcessorUtils.isDouble(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Double.class);
-          if (ConfigProcessorUtils.isFloat(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Float.class);
-          if (ConfigProcessorUtils.isInteger(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Integer.class);
-          if (ConfigProcessorUtils.isLong(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Long.class);
-          if (ConfigProcessorUtils.isShort(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Short.class);
-          if (ConfigProcessorUtils.isString(typeArg, processingEnv))
-            builder.addStatement("$L.add(part)", listName);
-        }
-        builder.endControlFlow();
-        builder.endControlFlow();
-        builder.addStatement("return $L", listName);
+    methodBuilder.addStatement("out.writeLong(SCHEMA_FINGERPRINT)");
+    for (Name name : includedMap.keySet())
+      methodBuilder.addStatement("$L.writeBinary(t.$L(), out)", includedFactoryField(name), name);
 
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle bundle = annotationsMap.get(method);
+      String valueName = method.getSimpleName() + "Value";
+      String parserName = addParserLocal(methodBuilder, method, bundle);
+      methodBuilder.addStatement(
+          "$T $L = t.$L()",
+          TypeName.get(method.getReturnType()),
+          valueName,
+          method.getSimpleName());
+
+      if (bundle.primitiveArray()) {
+        TypeKind component = bundle.typeArgs().get(0).getKind();
+        methodBuilder.addStatement("out.writeInt($L.length)", valueName);
+        methodBuilder.beginControlFlow("for (var element : $L)", valueName);
+        methodBuilder.addStatement(writePrimitive(component, "element"));
+        methodBuilder.endControlFlow();
+      } else if (bundle.map()) {
+        String keyParserName = addKeyParserLocal(methodBuilder, bundle, valueName);
+        methodBuilder.addStatement("out.writeInt($L.size())", valueName);
+        methodBuilder.beginControlFlow("for (var element : $L.entrySet())", valueName);
+        methodBuilder.addStatement(
+            writeScalar(
+                bundle.keyKind().orElse(ValueKind.OTHER), keyParserName, "element.getKey()"));
+        methodBuilder.addStatement(
+            writeScalar(bundle.valueKind(), parserName, "element.getValue()"));
+        methodBuilder.endControlFlow();
+      } else if (bundle.multiValued()) {
+        methodBuilder.addStatement("out.writeInt($L.size())", valueName);
+        methodBuilder.beginControlFlow("for (var element : $L)", valueName);
+        methodBuilder.addStatement(writeScalar(bundle.valueKind(), parserName, "element"));
+        methodBuilder.endControlFlow();
+      } else if (parserName == null
+          && bundle.valueKind().primitiveKind() != null
+          && !method.getReturnType().getKind().isPrimitive()) {
+        // boxed value, which may be null
+        methodBuilder.addStatement("out.writeBoolean($L != null)", valueName);
+        methodBuilder.addStatement(
+            "if ($L != null) $L", valueName, writeScalar(bundle.valueKind(), null, valueName));
       } else {
-        if (bundle.parserClass().isPresent()) {
-          builder.addStatement("return $L.fromString($S)", parserName, bundle.defaultValue());
-        } else {
-          if (ConfigProcessorUtils.isString(bundle.erasure(), processingEnv)) {
-            builder.addStatement("return $S", bundle.defaultValue());
-          } else {
-            if (bundle.defaultValue().trim().isEmpty()) {
-              processingEnv
-                  .getMessager()
-                  .printMessage(
-                      Diagnostic.Kind.ERROR,
-                      String.format(
-                          "Default value on method %s is blank!", method.getSimpleName()));
-            }
-            builder.addStatement("return $L", bundle.defaultValue());
-          }
-        }
+        methodBuilder.addStatement(writeScalar(bundle.valueKind(), parserName, valueName));
       }
-      typeBuilder.addMethod(builder.build());
     }
 
-    methodBuilder.addStatement("return $L", typeBuilder.build());
     return methodBuilder.build();
   }
 
   /**
-   * Create the {@link ConfigFactory#fromConfig(Configuration)} method.
+   * Create the {@link ConfigFactory#readBinary(DataInput)} method. Values are read in the order
+   * they are written by {@link #buildWriteBinary(TypeVariableName, Method, Map, Map)} and passed to
+   * the constructor of the snapshot class built by {@link #buildSnapshotClass(TypeElement,
+   * TypeVariableName, Map, Map)}.
    *
+   * @param annotatedType the interface or abstract class being processed.
    * @param tvn the type variable name representing the generic type of the object being processed.
    * @param m the method being processed.
    * @param annotationsMap a map containing methods and associated metadata.
    * @param includedMap a map containing classes to be added from an {@link Include} annotation.
-   * @return a {@link MethodSpec} instance representing the generated method for converting an
-   *     Apache Commons {@link Configuration} to an object.
+   * @return a {@link MethodSpec} instance representing the generated method for reading an object
+   *     in the binary format.
    */
-  private MethodSpec buildFromConfig(
+  private MethodSpec buildReadBinary(
+      TypeElement annotatedType,
       TypeVariableName tvn,
       Method m,
       Map<ExecutableElement, AnnotationBundle> annotationsMap,
-      Map<Name, AnnotationBundle> includedMap,
-      String prefix) {
-
+      Map<Name, AnnotationBundle> includedMap) {
     MethodSpec.Builder methodBuilder =
         MethodSpec.methodBuilder(m.getName())
             .addAnnotation(Override.class)
             .addModifiers(Modifier.PUBLIC)
             .returns(tvn)
-            .addParameter(org.apache.commons.configuration2.Configuration.class, "config");
+            .addParameter(DataInput.class, "in")
+            .addException(IOException.class);
 
-    TypeSpec.Builder typeBuilder = TypeSpec.anonymousClassBuilder("").addSuperinterface(tvn);
+    methodBuilder.addStatement(
+        "$T.checkFingerprint(in, SCHEMA_FINGERPRINT, $S)",
+        BinaryFormat.class,
+        annotatedType.getQualifiedName().toString());
 
-    Types types = processingEnv.getTypeUtils();
+    List<CodeBlock> args = new ArrayList<>();
     for (Name name : includedMap.keySet()) {
       AnnotationBundle bundle = includedMap.get(name);
+      String valueName = name + "Value";
+      methodBuilder.addStatement(
+          "$T $L = $L.readBinary(in)",
+          TypeName.get(bundle.erasure()),
+          valueName,
+          includedFactoryField(name));
+      args.add(CodeBlock.of("$L", valueName));
+    }
+
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle bundle = annotationsMap.get(method);
+      String valueName = method.getSimpleName() + "Value";
+      String sizeName = valueName + "Size";
+      String parserName = addParserLocal(methodBuilder, method, bundle);
+      TypeName returnType = TypeName.get(method.getReturnType());
+
+      // lengths are not trusted, so large arrays and lists grow as their elements are read
+      if (bundle.primitiveArray()) {
+        TypeKind component = bundle.typeArgs().get(0).getKind();
+        methodBuilder.addStatement(
+            "int $L = $T.readLength(in)", sizeName, BinaryFormat.class);
+        methodBuilder.addStatement(
+            "$T $L = new $T[$T.capacity($L, 0)]",
+            returnType,
+            valueName,
+            TypeName.get(bundle.typeArgs().get(0)),
+            BinaryFormat.class,
+            sizeName);
+        methodBuilder.beginControlFlow("for (int i = 0; i < $L; i++)", sizeName);
+        methodBuilder.addStatement(
+            "if (i == $L.length) $L = $T.copyOf($L, $T.capacity($L, i))",
+            valueName,
+            valueName,
+            Arrays.class,
+            valueName,
+            BinaryFormat.class,
+            sizeName);
+        methodBuilder.addStatement("$L[i] = $L", valueName, readPrimitive(component));
+        methodBuilder.endControlFlow();
+      } else if (bundle.map()) {
+        TypeName keyType = TypeName.get(bundle.typeArgs().get(0));
+        TypeName valueType = TypeName.get(bundle.typeArgs().get(1));
+        String keysName = valueName + "Keys";
+        String valuesName = valueName + "Values";
+        String keyParserName = addKeyParserLocal(methodBuilder, bundle, valueName);
+        methodBuilder.addStatement(
+            "int $L = $T.readLength(in)", sizeName, BinaryFormat.class);
+        methodBuilder.addStatement(
+            "$T $L = new $T($T.capacity($L, 0))",
+            ParameterizedTypeName.get(ClassName.get(List.class), keyType),
+            keysName,
+            ParameterizedTypeName.get(ClassName.get(ArrayList.class), keyType),
+            BinaryFormat.class,
+            sizeName);
+        methodBuilder.addStatement(
+            "$T $L = new $T($T.capacity($L, 0))",
+            ParameterizedTypeName.get(ClassName.get(List.class), valueType),
+            valuesName,
+            ParameterizedTypeName.get(ClassName.get(ArrayList.class), valueType),
+            BinaryFormat.class,
+            sizeName);
+        methodBuilder.beginControlFlow("for (int i = 0; i < $L; i++)", sizeName);
+        methodBuilder.addStatement(
+            "$L.add($L)",
+            keysName,
+            readScalar(bundle.keyKind().orElse(ValueKind.OTHER), keyParserName));
+        methodBuilder.addStatement(
+            "$L.add($L)", valuesName, readScalar(bundle.valueKind(), parserName));
+        methodBuilder.endControlFlow();
+        methodBuilder.addStatement(
+            "$T $L = $L", returnType, valueName, newMap(bundle, keysName + ", " + valuesName));
+      } else if (bundle.multiValued()) {
+        TypeName elementType = TypeName.get(bundle.typeArgs().get(0));
+        String elementsName = valueName + "Elements";
+        methodBuilder.addStatement(
+            "int $L = $T.readLength(in)", sizeName, BinaryFormat.class);
+        methodBuilder.addStatement(
+            "$T $L = new $T($T.capacity($L, 0))",
+            ParameterizedTypeName.get(ClassName.get(List.class), elementType),
+            elementsName,
+            ParameterizedTypeName.get(ClassName.get(ArrayList.class), elementType),
+            BinaryFormat.class,
+            sizeName);
+        methodBuilder.addStatement(
+            "for (int i = 0; i < $L; i++) $L.add($L)",
+            sizeName,
+            elementsName,
+            readScalar(bundle.valueKind(), parserName));
+        if (bundle.set())
+          methodBuilder.addStatement(
+              "$T $L = $L", returnType, valueName, newSet(bundle, elementsName));
+        else
+          methodBuilder.addStatement(
+              "$T $L = $T.unmodifiableList($L)",
+              returnType,
+              valueName,
+              Collections.class,
+              elementsName);
+      } else if (parserName == null
+          && bundle.valueKind().primitiveKind() != null
+          && !method.getReturnType().getKind().isPrimitive()) {
+        methodBuilder.addStatement(
+            "$T $L = in.readBoolean() ? $L : null",
+            returnType,
+            valueName,
+            readScalar(bundle.valueKind(), null));
+      } else {
+        methodBuilder.addStatement(
+            "$T $L = $L", returnType, valueName, readScalar(bundle.valueKind(), parserName));
+      }
+      args.add(CodeBlock.of("$L", valueName));
+    }
+
+    methodBuilder.addStatement("return new Snapshot($L)", CodeBlock.join(args, ", "));
+    return methodBuilder.build();
+  }
+
+  /**
+   * Add a statement declaring a local variable holding the parser for this bundle's map keys.
+   *
+   * @param builder method to add the statement to
+   * @param bundle annotation values for a method returning a map
+   * @param valueName name of the local variable holding the map, used to name the parser
+   * @return name of the local variable, or null if keys are not converted with a parser
+   */
+  private String addKeyParserLocal(
+      MethodSpec.Builder builder, AnnotationBundle bundle, String valueName) {
+    if (!hasKeyParser(bundle)) return null;
+    TypeName keyParserType =
+        bundle.keyParserClass().isPresent()
+            ? TypeName.get(bundle.keyParserClass().get())
+            : ParameterizedTypeName.get(
+                ClassName.get(EnumLookup.class), TypeName.get(bundle.typeArgs().get(0)));
+    String keyParserName = valueName + "KeyParser";
+    builder.addStatement("$T $L = $L", keyParserType, keyParserName, keyParserInstance(bundle));
+    return keyParserName;
+  }
+
+  /**
+   * @param kind kind of the value
+   * @param parserName name of a local {@link Parser} variable, or null if there is no parser
+   * @param value expression for the value to write
+   * @return a statement writing the value to a {@link DataOutput} named out. Values with a parser
+   *     are written as the String from {@link Parser#toString(Object)}.
+   */
+  private CodeBlock writeScalar(ValueKind kind, String parserName, String value) {
+    if (parserName != null)
+      return CodeBlock.of(
+          "$T.writeString(out, $L.toString($L))", BinaryFormat.class, parserName, value);
+    if (kind == ValueKind.STRING)
+      return CodeBlock.of("$T.writeString(out, $L)", BinaryFormat.class, value);
+    if (kind.primitiveKind() == null) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Can't write value " + value + " of kind " + kind);
+      return CodeBlock.of(
+          "$T.writeString(out, $T.valueOf($L))", BinaryFormat.class, String.class, value);
+    }
+    return writePrimitive(kind.primitiveKind(), value);
+  }
+
+  /**
+   * @param kind primitive kind of the value
+   * @param value expression for the value to write
+   * @return a statement writing the value to a {@link DataOutput} named out
+   */
+  private CodeBlock writePrimitive(TypeKind kind, String value) {
+    return switch (kind) {
+      case BOOLEAN -> CodeBlock.of("out.writeBoolean($L)", value);
+      case BYTE -> CodeBlock.of("out.writeByte($L)", value);
+      case DOUBLE -> CodeBlock.of("out.writeDouble($L)", value);
+      case FLOAT -> CodeBlock.of("out.writeFloat($L)", value);
+      case INT -> CodeBlock.of("out.writeInt($L)", value);
+      case LONG -> CodeBlock.of("out.writeLong($L)", value);
+      case SHORT -> CodeBlock.of("out.writeShort($L)", value);
+      default -> {
+        processingEnv
+            .getMessager()
+            .printMessage(Diagnostic.Kind.ERROR, "Can't write primitive type " + kind);
+        yield CodeBlock.of("out.writeInt(0)");
+      }
+    };
+  }
+
+  /**
+   * @param kind kind of the value
+   * @param parserName name of a local {@link Parser} variable, or null if there is no parser
+   * @return an expression reading a value written by {@link #writeScalar(ValueKind, String,
+   *     String)} from a {@link DataInput} named in
+   */
+  private CodeBlock readScalar(ValueKind kind, String parserName) {
+    if (parserName != null)
+      return CodeBlock.of("$L.fromString($T.readString(in))", parserName, BinaryFormat.class);
+    if (kind.primitiveKind() == null) return CodeBlock.of("$T.readString(in)", BinaryFormat.class);
+    return readPrimitive(kind.primitiveKind());
+  }
+
+  /**
+   * @param kind primitive kind of the value
+   * @return an expression reading a value written by {@link #writePrimitive(TypeKind, String)}
+   *     from a {@link DataInput} named in
+   */
+  private CodeBlock readPrimitive(TypeKind kind) {
+    return switch (kind) {
+      case BOOLEAN -> CodeBlock.of("in.readBoolean()");
+      case BYTE -> CodeBlock.of("in.readByte()");
+      case DOUBLE -> CodeBlock.of("in.readDouble()");
+      case FLOAT -> CodeBlock.of("in.readFloat()");
+      case INT -> CodeBlock.of("in.readInt()");
+      case LONG -> CodeBlock.of("in.readLong()");
+      case SHORT -> CodeBlock.of("in.readShort()");
+      default -> CodeBlock.of("0");
+    };
+  }
+
+  /**
+   * Create the {@link ConfigFactory#getTemplate()} method. The template is built once, when the
+   * factory class is initialized, and the same instance is returned by every call.
+   *
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param m the method being processed.
+   * @return a {@link MethodSpec} that returns a template object, populated by the default values.
+   */
+  private MethodSpec buildGetTemplate(TypeVariableName tvn, Method m) {
+    return MethodSpec.methodBuilder(m.getName())
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(tvn)
+        .addStatement("return TEMPLATE")
+        .build();
+  }
+
+  /**
+   * Create the static method that builds the shared template object returned by {@link
+   * ConfigFactory#getTemplate()}.
+   *
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @return a {@link MethodSpec} that parses the default values into a new snapshot object.
+   */
+  private MethodSpec buildNewTemplate(
+      TypeVariableName tvn,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap) {
+
+    MethodSpec.Builder methodBuilder =
+        MethodSpec.methodBuilder("newTemplate")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .returns(tvn);
+
+    List<CodeBlock> args = new ArrayList<>();
+
+    for (Name name : includedMap.keySet()) {
+      AnnotationBundle bundle = includedMap.get(name);
+      String valueName = name + "Value";
+      methodBuilder.addStatement(
+          "$T $L = new $T().getTemplate()",
+          TypeName.get(bundle.erasure()),
+          valueName,
+          includedFactoryClass(bundle));
+      args.add(CodeBlock.of("$L", valueName));
+    }
+
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle bundle = annotationsMap.get(method);
+      String valueName = method.getSimpleName() + "Value";
+      addDefaultRead(methodBuilder, method, bundle, valueName);
+      if (bundle.list())
+        args.add(CodeBlock.of("$T.unmodifiableList($L)", Collections.class, valueName));
+      else args.add(CodeBlock.of("$L", valueName));
+    }
+
+    methodBuilder.addStatement("return new Snapshot($L)", CodeBlock.join(args, ", "));
+    return methodBuilder.build();
+  }
+
+  /**
+   * Add statements that parse the default value of an annotated method into a new local variable.
+   *
+   * @param builder method to add the statements to
+   * @param method annotated method
+   * @param bundle annotation values for this method
+   * @param valueName name of the local variable to create
+   */
+  private void addDefaultRead(
+      MethodSpec.Builder builder,
+      ExecutableElement method,
+      AnnotationBundle bundle,
+      String valueName) {
+
+    String parserName = addParserLocal(builder, method, bundle);
+
+    if (bundle.multiValued()) {
+      String partsName = method.getSimpleName() + "Parts";
+      builder.addStatement(
+          "String [] $L = ($S).split($S)", partsName, bundle.defaultValue(), "[\\n\\r\\s]+");
+      addPartsParse(
+          builder, bundle, parserName, partsName, CodeBlock.of("$L.length", partsName), valueName);
+    } else {
+      TypeName type = TypeName.get(method.getReturnType());
+      if (parserName != null) {
+        builder.addStatement(
+            "$T $L = $L.fromString($S)", type, valueName, parserName, bundle.defaultValue());
+      } else if (bundle.valueKind() == ValueKind.STRING) {
+        builder.addStatement("$T $L = $S", type, valueName, bundle.defaultValue());
+      } else {
+        if (bundle.defaultValue().trim().isEmpty()) {
+          processingEnv
+              .getMessager()
+              .printMessage(
+                  Diagnostic.Kind.ERROR,
+                  String.format("Default value on method %s is blank!", method.getSimpleName()));
+        }
+        builder.addStatement("$T $L = $L", type, valueName, bundle.defaultValue());
+      }
+    }
+  }
+
+  /**
+   * Create the {@link ConfigFactory#fromConfig(Configuration)} method.
+   *
+   * @param annotatedType the interface or abstract class being processed.
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param m the method being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @return a {@link MethodSpec} instance representing the generated method for converting an
+   *     Apache Commons {@link Configuration} to an object.
+   */
+  private MethodSpec buildFromConfig(
+      TypeElement annotatedType,
+      TypeVariableName tvn,
+      Method m,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap,
+      String prefix) {
+
+    MethodSpec.Builder methodBuilder =
+        MethodSpec.methodBuilder(m.getName())
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(tvn)
+            .addParameter(org.apache.commons.configuration2.Configuration.class, "config");
+
+    TypeSpec.Builder typeBuilder = TypeSpec.anonymousClassBuilder("").addSuperinterface(tvn);
+
+    for (Name name : includedMap.keySet()) {
+      AnnotationBundle bundle = includedMap.get(name);
+
+      MethodSpec.Builder builder =
+          MethodSpec.methodBuilder(name.toString())
+              .addModifiers(Modifier.PUBLIC)
+              .addAnnotation(Override.class)
+              .returns(TypeName.get(bundle.erasure()))
+              .addJavadoc(bundle.comment());
+
+      // the included object is created once, and reads the configuration when its methods are
+      // called
+      String valueName = name + "Value";
+      methodBuilder.addStatement(
+          "$T $L = $L.fromConfig(config)",
+          TypeName.get(bundle.erasure()),
+          valueName,
+          includedFactoryField(name));
+      builder.addStatement("return $L", valueName);
+
+      typeBuilder.addMethod(builder.build());
+    }
+
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle bundle = annotationsMap.get(method);
+      MethodSpec.Builder builder =
+          MethodSpec.methodBuilder(method.getSimpleName().toString())
+              .addModifiers(Modifier.PUBLIC)
+              .addAnnotation(Override.class)
+              .returns(TypeName.get(method.getReturnType()))
+              .addJavadoc(bundle.comment());
+
+      builder.addStatement("String key = $N + $S", prefix, bundle.key());
+      String valueName = method.getSimpleName() + "Value";
+      addConfigRead(builder, method, bundle, "key", valueName);
+      builder.addStatement("return $L", valueName);
+      typeBuilder.addMethod(builder.build());
+    }
+    // values are read from the configuration each time, so the hash code is not cached
+    addObjectMethods(typeBuilder, annotatedType, tvn, false);
+    methodBuilder.addStatement("return $L", typeBuilder.build());
+
+    return methodBuilder.build();
+  }
+
+  /**
+   * Create the {@link ConfigFactory#fromConfigSnapshot(Configuration)} method. Every key is read
+   * and converted once, and the values are passed to the constructor of the snapshot class built
+   * by {@link #buildSnapshotClass(TypeElement, TypeVariableName, Map, Map)}.
+   *
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param m the method being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @param prefix a string representing the prefix when generating configuration keys.
+   * @return a {@link MethodSpec} instance representing the generated method for converting an
+   *     Apache Commons {@link Configuration} to an immutable object.
+   */
+  private MethodSpec buildFromConfigSnapshot(
+      TypeVariableName tvn,
+      Method m,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap,
+      String prefix) {
+
+    MethodSpec.Builder methodBuilder =
+        MethodSpec.methodBuilder(m.getName())
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(tvn)
+            .addParameter(org.apache.commons.configuration2.Configuration.class, "config");
+
+    List<CodeBlock> args = new ArrayList<>();
+
+    for (Name name : includedMap.keySet()) {
+      AnnotationBundle bundle = includedMap.get(name);
+      String valueName = name + "Value";
+      methodBuilder.addStatement(
+          "$T $L = $L.fromConfigSnapshot(config)",
+          TypeName.get(bundle.erasure()),
+          valueName,
+          includedFactoryField(name));
+      args.add(CodeBlock.of("$L", valueName));
+    }
+
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle bundle = annotationsMap.get(method);
+      String keyName = method.getSimpleName() + "Key";
+      String valueName = method.getSimpleName() + "Value";
+      methodBuilder.addStatement("String $L = $N + $S", keyName, prefix, bundle.key());
+      addConfigRead(methodBuilder, method, bundle, keyName, valueName);
+      if (bundle.list())
+        args.add(CodeBlock.of("$T.unmodifiableList($L)", Collections.class, valueName));
+      else args.add(CodeBlock.of("$L", valueName));
+    }
+
+    methodBuilder.addStatement("return new Snapshot($L)", CodeBlock.join(args, ", "));
+    return methodBuilder.build();
+  }
+
+  /**
+   * Create the {@link ConfigFactory#fromConfig(Configuration, Object)} method. This is the same as
+   * {@link #buildFromConfigSnapshot(TypeVariableName, Method, Map, Map, String)}, except that a
+   * missing key is given the value from the fallback object rather than throwing an exception.
+   * Included objects are read with the included object from the fallback.
+   *
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param m the method being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @param prefix a string representing the prefix when generating configuration keys.
+   * @return a {@link MethodSpec} instance representing the generated method for converting an
+   *     Apache Commons {@link Configuration} to an immutable object, using a fallback for missing
+   *     keys.
+   */
+  private MethodSpec buildFromConfigWithFallback(
+      TypeVariableName tvn,
+      Method m,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap,
+      String prefix) {
+
+    MethodSpec.Builder methodBuilder =
+        MethodSpec.methodBuilder(m.getName())
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(tvn)
+            .addParameter(org.apache.commons.configuration2.Configuration.class, "config")
+            .addParameter(tvn, "fallback");
+
+    List<CodeBlock> args = new ArrayList<>();
+
+    for (Name name : includedMap.keySet()) {
+      AnnotationBundle bundle = includedMap.get(name);
+      String valueName = name + "Value";
+      methodBuilder.addStatement(
+          "$T $L = $L.fromConfig(config, fallback.$L())",
+          TypeName.get(bundle.erasure()),
+          valueName,
+          includedFactoryField(name),
+          name);
+      args.add(CodeBlock.of("$L", valueName));
+    }
+
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle bundle = annotationsMap.get(method);
+      String keyName = method.getSimpleName() + "Key";
+      String valueName = method.getSimpleName() + "Value";
+      methodBuilder.addStatement("String $L = $N + $S", keyName, prefix, bundle.key());
+      addConfigRead(
+          methodBuilder,
+          method,
+          bundle,
+          keyName,
+          valueName,
+          CodeBlock.of("fallback.$L()", method.getSimpleName()));
+      if (bundle.list())
+        args.add(CodeBlock.of("$T.unmodifiableList($L)", Collections.class, valueName));
+      else args.add(CodeBlock.of("$L", valueName));
+    }
+
+    methodBuilder.addStatement("return new Snapshot($L)", CodeBlock.join(args, ", "));
+    return methodBuilder.build();
+  }
+
+  /**
+   * Create the {@link ConfigFactory#fromValues(Map)} method. Each entry is dispatched to a local
+   * variable with a switch on the key, then every value is converted once and passed to the
+   * constructor of the snapshot class built by {@link #buildSnapshotClass(TypeElement,
+   * TypeVariableName, Map, Map)}.
+   *
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param m the method being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @param prefix a string representing the prefix when generating configuration keys.
+   * @return a {@link MethodSpec} instance representing the generated method for converting a map
+   *     of keys to values to an immutable object.
+   */
+  private MethodSpec buildFromValues(
+      TypeVariableName tvn,
+      Method m,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap,
+      String prefix) {
+
+    ParameterizedTypeName listType = ParameterizedTypeName.get(List.class, String.class);
+    ParameterizedTypeName mapType =
+        ParameterizedTypeName.get(ClassName.get(Map.class), ClassName.get(String.class), listType);
+    ParameterizedTypeName entryType =
+        ParameterizedTypeName.get(
+            ClassName.get(Map.Entry.class), ClassName.get(String.class), listType);
+
+    MethodSpec.Builder methodBuilder =
+        MethodSpec.methodBuilder(m.getName())
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(tvn)
+            .addParameter(mapType, "values");
+
+    List<CodeBlock> args = new ArrayList<>();
+
+    for (Name name : includedMap.keySet()) {
+      AnnotationBundle bundle = includedMap.get(name);
+      String valueName = name + "Value";
+      methodBuilder.addStatement(
+          "$T $L = $L.fromValues(values)",
+          TypeName.get(bundle.erasure()),
+          valueName,
+          includedFactoryField(name));
+      args.add(CodeBlock.of("$L", valueName));
+    }
+
+    if (!annotationsMap.isEmpty()) {
+      for (ExecutableElement method : annotationsMap.keySet())
+        methodBuilder.addStatement("$T $LParts = null", listType, method.getSimpleName());
+
+      methodBuilder.beginControlFlow("for ($T entry : values.entrySet())", entryType);
+      methodBuilder.addStatement("String key = entry.getKey()");
+      methodBuilder.addStatement("if (!key.startsWith($N)) continue", prefix);
+      methodBuilder.beginControlFlow("switch (key.substring($N.length()))", prefix);
+      for (ExecutableElement method : annotationsMap.keySet()) {
+        methodBuilder.addCode("case $S:\n$>", annotationsMap.get(method).key());
+        methodBuilder.addStatement("$LParts = entry.getValue()", method.getSimpleName());
+        methodBuilder.addStatement("break");
+        methodBuilder.addCode("$<");
+      }
+      methodBuilder.addCode("default:\n$>");
+      methodBuilder.addStatement("break");
+      methodBuilder.addCode("$<");
+      methodBuilder.endControlFlow();
+      methodBuilder.endControlFlow();
+    }
+
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle bundle = annotationsMap.get(method);
+      String keyName = method.getSimpleName() + "Key";
+      String partsName = method.getSimpleName() + "Parts";
+      String valueName = method.getSimpleName() + "Value";
+      methodBuilder.addStatement("String $L = $N + $S", keyName, prefix, bundle.key());
+      addValuesRead(methodBuilder, method, bundle, keyName, partsName, valueName);
+      if (bundle.list())
+        args.add(CodeBlock.of("$T.unmodifiableList($L)", Collections.class, valueName));
+      else args.add(CodeBlock.of("$L", valueName));
+    }
+
+    methodBuilder.addStatement("return new Snapshot($L)", CodeBlock.join(args, ", "));
+    return methodBuilder.build();
+  }
+
+  /**
+   * Create the {@link ConfigFactory#validate(Configuration)} method. Every key is checked and
+   * converted in the same way as {@link ConfigFactory#fromConfigSnapshot(Configuration)}, but
+   * problems are added to a list rather than thrown. Each element of a list, array, set or map is
+   * checked on its own. {@link IllegalArgumentException} and {@link ConversionException}, which are
+   * thrown for values that can't be converted, are reported as problems, as is any {@link
+   * RuntimeException} thrown by a {@link Parser}. Any other exception is thrown.
+   *
+   * @param m the method being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @param prefix a string representing the prefix when generating configuration keys.
+   * @return a {@link MethodSpec} instance representing the generated method for listing the
+   *     problems with a configuration.
+   */
+  private MethodSpec buildValidate(
+      Method m,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap,
+      String prefix) {
+
+    ParameterizedTypeName listType = ParameterizedTypeName.get(List.class, String.class);
+    MethodSpec.Builder methodBuilder =
+        MethodSpec.methodBuilder(m.getName())
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(listType)
+            .addParameter(org.apache.commons.configuration2.Configuration.class, "config");
+
+    methodBuilder.addStatement("$T problems = new $T<>()", listType, ArrayList.class);
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle bundle = annotationsMap.get(method);
+      String keyName = method.getSimpleName() + "Key";
+      String valueName = method.getSimpleName() + "Value";
+      methodBuilder.addStatement("String $L = $N + $S", keyName, prefix, bundle.key());
+      // Strings without a parser are not converted, so they can only be missing
+      boolean converted =
+          bundle.map()
+              || hasParser(bundle)
+              || hasKeyParser(bundle)
+              || bundle.valueKind() != ValueKind.STRING;
+      if (!converted) {
+        methodBuilder.addStatement(
+            "if (!config.containsKey($L)) problems.add($S + $L)", keyName, "No such key ", keyName);
+        continue;
+      }
+      methodBuilder.beginControlFlow("if (!config.containsKey($L))", keyName);
+      methodBuilder.addStatement("problems.add($S + $L)", "No such key ", keyName);
+      methodBuilder.nextControlFlow("else");
+      if (bundle.multiValued()) addElementChecks(methodBuilder, method, bundle, keyName, valueName);
+      else addScalarCheck(methodBuilder, method, bundle, keyName);
+      methodBuilder.endControlFlow();
+    }
+
+    for (Name name : includedMap.keySet())
+      methodBuilder.addStatement(
+          "problems.addAll($L.validate(config))", includedFactoryField(name));
+
+    methodBuilder.addStatement("return problems");
+    return methodBuilder.build();
+  }
+
+  /**
+   * Add statements to the validate method that convert a single value whose key is known to be
+   * present, and report it if it can't be converted.
+   *
+   * @param builder method to add the statements to
+   * @param method annotated method
+   * @param bundle annotation values for a method returning a single value
+   * @param keyName name of a local String variable holding the full key
+   */
+  private void addScalarCheck(
+      MethodSpec.Builder builder,
+      ExecutableElement method,
+      AnnotationBundle bundle,
+      String keyName) {
+    String parserName = addParserLocal(builder, method, bundle);
+    builder.beginControlFlow("try");
+    if (parserName != null) {
+      builder.addStatement("$L.fromString(config.getString($L))", parserName, keyName);
+    } else {
+      String getter =
+          switch (bundle.valueKind()) {
+            case BOOLEAN -> "getBoolean";
+            case BYTE -> "getByte";
+            case DOUBLE -> "getDouble";
+            case FLOAT -> "getFloat";
+            case INTEGER -> "getInt";
+            case LONG -> "getLong";
+            case SHORT -> "getShort";
+            case STRING, ENUM, OTHER -> null;
+          };
+      if (getter == null) {
+        processingEnv
+            .getMessager()
+            .printMessage(Diagnostic.Kind.ERROR, "Can't handle return type " + bundle.erasure());
+        return;
+      }
+      builder.addStatement("config.$L($L)", getter, keyName);
+    }
+    addInvalidValue(builder, keyName, null, parserName != null);
+  }
+
+  /**
+   * Close a try block in the validate method with a catch that adds a problem for a value that
+   * can't be converted. {@link Configuration} throws {@link ConversionException} and the standard
+   * parsers throw {@link IllegalArgumentException}. A {@link Parser} may throw any {@link
+   * RuntimeException}, so all of them are caught when one is used.
+   *
+   * @param builder method to add the statements to
+   * @param keyName name of a local String variable holding the full key
+   * @param index name of a local int variable holding the element's index, or null for a single
+   *     value
+   * @param parser true if a parser is called in the try block
+   */
+  private void addInvalidValue(
+      MethodSpec.Builder builder, String keyName, String index, boolean parser) {
+    if (parser) builder.nextControlFlow("catch ($T e)", RuntimeException.class);
+    else
+      builder.nextControlFlow(
+          "catch ($T | $T e)", IllegalArgumentException.class, ConversionException.class);
+    // a parser's exception may have no message
+    CodeBlock message = parser ? CodeBlock.of("e") : CodeBlock.of("e.getMessage()");
+    if (index == null)
+      builder.addStatement(
+          "problems.add($S + $L + $S + $L)", "Invalid value for ", keyName, ": ", message);
+    else
+      builder.addStatement(
+          "problems.add($S + $L + $S + $L + $S + $L)",
+          "Invalid value for ",
+          keyName,
+          "[",
+          index,
+          "]: ",
+          message);
+    builder.endControlFlow();
+  }
+
+  /**
+   * Add statements to the validate method that convert each element of a list, primitive array,
+   * set or map on its own, so that every element that can't be converted is reported. Blank
+   * elements are skipped, as they are when the value is read.
+   *
+   * @param builder method to add the statements to
+   * @param method annotated method
+   * @param bundle annotation values for a method returning a list, primitive array, set or map
+   * @param keyName name of a local String variable holding the full key
+   * @param valueName name of the value being checked, used to name local variables
+   */
+  private void addElementChecks(
+      MethodSpec.Builder builder,
+      ExecutableElement method,
+      AnnotationBundle bundle,
+      String keyName,
+      String valueName) {
+    String parserName = addParserLocal(builder, method, bundle);
+    String keyParserName = bundle.map() ? addKeyParserLocal(builder, bundle, valueName) : null;
+    String partsName = method.getSimpleName() + "Parts";
+    builder.addStatement("String [] $L = config.getStringArray($L)", partsName, keyName);
+    builder.beginControlFlow("for (int i = 0; i < $L.length; i++)", partsName);
+    builder.addStatement("String part = $L[i]", partsName);
+    builder.addStatement("if (part.trim().length() == 0) continue");
+    builder.beginControlFlow("try");
+    if (bundle.primitiveArray()) {
+      builder.addStatement("$L", parsePrimitive(bundle.typeArgs().get(0), "part"));
+    } else if (bundle.map()) {
+      builder.addStatement("int separator = part.indexOf('=')");
+      builder.addStatement(
+          "if (separator < 0) throw new $T($S + part)",
+          IllegalArgumentException.class,
+          "Expected key=value, found ");
+      ValueKind keyKind = bundle.keyKind().orElse(ValueKind.OTHER);
+      if (keyParserName != null || keyKind != ValueKind.STRING)
+        builder.addStatement(
+            "$L",
+            parseScalar(
+                keyKind,
+                bundle.typeArgs().get(0),
+                keyParserName,
+                "part.substring(0, separator).trim()"));
+      if (parserName != null || bundle.valueKind() != ValueKind.STRING)
+        builder.addStatement(
+            "$L", parseElement(bundle, parserName, "part.substring(separator + 1).trim()"));
+    } else {
+      builder.addStatement("$L", parseElement(bundle, parserName, "part"));
+    }
+    addInvalidValue(builder, keyName, "i", parserName != null || keyParserName != null);
+    builder.endControlFlow();
+  }
+
+  /**
+   * Create the {@link ConfigFactory#diff(Object, Object)} method. Each value is compared using its
+   * own type: primitives with ==, floating point values with compare(), primitive arrays with
+   * Arrays.equals() and everything else with Objects.equals(). The returned list is only allocated
+   * if a value has changed.
+   *
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param m the method being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @param prefix a string representing the prefix when generating configuration keys.
+   * @return a {@link MethodSpec} instance representing the generated method for listing the keys
+   *     whose values differ between two objects.
+   */
+  private MethodSpec buildDiff(
+      TypeVariableName tvn,
+      Method m,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap,
+      String prefix) {
+
+    ParameterizedTypeName listType = ParameterizedTypeName.get(List.class, String.class);
+    MethodSpec.Builder methodBuilder =
+        MethodSpec.methodBuilder(m.getName())
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(listType)
+            .addParameter(tvn, "before")
+            .addParameter(tvn, "after");
+
+    methodBuilder.addStatement("if (before == after) return $T.emptyList()", Collections.class);
+    methodBuilder.addStatement("$T changed = null", listType);
+
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle bundle = annotationsMap.get(method);
+      TypeMirror returnType = method.getReturnType();
+      String name = method.getSimpleName().toString();
+      CodeBlock different =
+          switch (returnType.getKind()) {
+            case DOUBLE -> CodeBlock.of(
+                "$T.compare(before.$L(), after.$L()) != 0", Double.class, name, name);
+            case FLOAT -> CodeBlock.of(
+                "$T.compare(before.$L(), after.$L()) != 0", Float.class, name, name);
+            case BOOLEAN, BYTE, CHAR, INT, LONG, SHORT -> CodeBlock.of(
+                "before.$L() != after.$L()", name, name);
+            case ARRAY -> CodeBlock.of(
+                "!$T.equals(before.$L(), after.$L())", Arrays.class, name, name);
+            default -> CodeBlock.of(
+                "!$T.equals(before.$L(), after.$L())", Objects.class, name, name);
+          };
+      methodBuilder.beginControlFlow("if ($L)", different);
+      methodBuilder.addStatement("if (changed == null) changed = new $T<>()", ArrayList.class);
+      methodBuilder.addStatement("changed.add($N + $S)", prefix, bundle.key());
+      methodBuilder.endControlFlow();
+    }
+
+    for (Name name : includedMap.keySet()) {
+      AnnotationBundle bundle = includedMap.get(name);
+      String changedName = name + "Changed";
+      methodBuilder.addStatement(
+          "$T $L = $L.diff(before.$L(), after.$L())",
+          listType,
+          changedName,
+          includedFactoryField(name),
+          name,
+          name);
+      methodBuilder.beginControlFlow("if (!$L.isEmpty())", changedName);
+      methodBuilder.addStatement("if (changed == null) changed = new $T<>()", ArrayList.class);
+      methodBuilder.addStatement("changed.addAll($L)", changedName);
+      methodBuilder.endControlFlow();
+    }
+
+    methodBuilder.addStatement(
+        "return changed == null ? $T.emptyList() : changed", Collections.class);
+    return methodBuilder.build();
+  }
+
+  /**
+   * Create the {@link ConfigFactory#keys()} method. Keys are listed in the same order as {@link
+   * #buildWriteTo(TypeVariableName, Method, Map, Map, String)} writes them.
+   *
+   * @param m the method being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @param prefix a string representing the prefix when generating configuration keys.
+   * @return a {@link MethodSpec} instance representing the generated method for listing the keys.
+   */
+  private MethodSpec buildKeys(
+      Method m,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap,
+      String prefix) {
+    ParameterizedTypeName listType = ParameterizedTypeName.get(List.class, String.class);
+    MethodSpec.Builder methodBuilder =
+        MethodSpec.methodBuilder(m.getName())
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(listType);
 
-      MethodSpec.Builder builder =
-          MethodSpec.methodBuilder(name.toString())
+    methodBuilder.addStatement(
+        "$T keys = new $T<>($L)", listType, ArrayList.class, annotationsMap.size());
+    for (AnnotationBundle bundle : annotationsMap.values())
+      methodBuilder.addStatement("keys.add($N + $S)", prefix, bundle.key());
+    for (Name name : includedMap.keySet())
+      methodBuilder.addStatement("keys.addAll($L.keys())", includedFactoryField(name));
+    methodBuilder.addStatement("return keys");
+    return methodBuilder.build();
+  }
+
+  /**
+   * Create the {@link ConfigFactory#isMultiValued(String)} method. Keys of this type are checked
+   * with a switch, then each included factory is asked in turn.
+   *
+   * @param m the method being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @param prefix a string representing the prefix when generating configuration keys.
+   * @return a {@link MethodSpec} instance representing the generated method for finding keys that
+   *     may have more than one value.
+   */
+  private MethodSpec buildIsMultiValued(
+      Method m,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap,
+      String prefix) {
+    MethodSpec.Builder methodBuilder =
+        MethodSpec.methodBuilder(m.getName())
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(boolean.class)
+            .addParameter(String.class, "key");
+
+    List<String> multiValued = new ArrayList<>();
+    for (AnnotationBundle bundle : annotationsMap.values())
+      if (bundle.multiValued()) multiValued.add(bundle.key());
+
+    if (!multiValued.isEmpty()) {
+      methodBuilder.beginControlFlow("if (key.startsWith($N))", prefix);
+      methodBuilder.beginControlFlow("switch (key.substring($N.length()))", prefix);
+      for (String key : multiValued) methodBuilder.addCode("case $S:\n", key);
+      methodBuilder.addCode("$>");
+      methodBuilder.addStatement("return true");
+      methodBuilder.addCode("$<default:\n$>");
+      methodBuilder.addStatement("break");
+      methodBuilder.addCode("$<");
+      methodBuilder.endControlFlow();
+      methodBuilder.endControlFlow();
+    }
+
+    List<CodeBlock> included = new ArrayList<>();
+    for (Name name : includedMap.keySet())
+      included.add(CodeBlock.of("$L.isMultiValued(key)", includedFactoryField(name)));
+    if (included.isEmpty()) methodBuilder.addStatement("return false");
+    else methodBuilder.addStatement("return $L", CodeBlock.join(included, " || "));
+    return methodBuilder.build();
+  }
+
+  /**
+   * Create static methods of the factory class that compare, hash and format objects of the
+   * annotated type using the value of each method, in the same order as {@link
+   * #buildSnapshotClass(TypeElement, TypeVariableName, Map, Map)} declares its fields. These are
+   * shared by the generated implementations so that a snapshot and an object from {@link
+   * ConfigFactory#fromConfig(Configuration)} holding the same values are equal and have the same
+   * hash code. Objects are only equal if both were created by this factory, so that an object of a
+   * subclass, which has more values, is never equal to an object of its superclass.
+   *
+   * @param factoryClass the generated factory class
+   * @param annotatedType the interface or abstract class being processed.
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @return isGenerated(), valuesEqual(), valuesHashCode() and valuesToString() methods
+   */
+  private List<MethodSpec> buildValueMethods(
+      ClassName factoryClass,
+      TypeElement annotatedType,
+      TypeVariableName tvn,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap) {
+
+    Map<String, TypeMirror> members = new LinkedHashMap<>();
+    for (Name name : includedMap.keySet())
+      members.put(name.toString(), includedMap.get(name).erasure());
+    for (ExecutableElement method : annotationsMap.keySet())
+      members.put(method.getSimpleName().toString(), method.getReturnType());
+
+    MethodSpec.Builder equals =
+        MethodSpec.methodBuilder("valuesEqual")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .returns(boolean.class)
+            .addParameter(tvn, "a")
+            .addParameter(tvn, "b");
+    MethodSpec.Builder hashCode =
+        MethodSpec.methodBuilder("valuesHashCode")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .returns(int.class)
+            .addParameter(tvn, "t")
+            .addStatement("int h = 1");
+    MethodSpec.Builder toString =
+        MethodSpec.methodBuilder("valuesToString")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .returns(String.class)
+            .addParameter(tvn, "t")
+            .addStatement(
+                "$T sb = new $T($S)",
+                StringBuilder.class,
+                StringBuilder.class,
+                annotatedType.getSimpleName() + "[");
+
+    List<CodeBlock> comparisons = new ArrayList<>();
+    String separator = "";
+    for (String name : members.keySet()) {
+      TypeMirror type = members.get(name);
+      switch (type.getKind()) {
+        case DOUBLE, FLOAT -> {
+          Class<?> boxed = type.getKind() == TypeKind.DOUBLE ? Double.class : Float.class;
+          comparisons.add(CodeBlock.of("$T.compare(a.$L(), b.$L()) == 0", boxed, name, name));
+          hashCode.addStatement("h = 31 * h + $T.hashCode(t.$L())", boxed, name);
+        }
+        case BOOLEAN, BYTE, CHAR, INT, LONG, SHORT -> {
+          comparisons.add(CodeBlock.of("a.$L() == b.$L()", name, name));
+          hashCode.addStatement("h = 31 * h + $T.hashCode(t.$L())", TypeName.get(type).box(), name);
+        }
+        case ARRAY -> {
+          comparisons.add(CodeBlock.of("$T.equals(a.$L(), b.$L())", Arrays.class, name, name));
+          hashCode.addStatement("h = 31 * h + $T.hashCode(t.$L())", Arrays.class, name);
+        }
+        default -> {
+          comparisons.add(CodeBlock.of("$T.equals(a.$L(), b.$L())", Objects.class, name, name));
+          hashCode.addStatement("h = 31 * h + $T.hashCode(t.$L())", Objects.class, name);
+        }
+      }
+      if (type.getKind() == TypeKind.ARRAY)
+        toString.addStatement(
+            "sb.append($S).append($T.toString(t.$L()))",
+            separator + name + "=",
+            Arrays.class,
+            name);
+      else toString.addStatement("sb.append($S).append(t.$L())", separator + name + "=", name);
+      separator = ", ";
+    }
+
+    if (comparisons.isEmpty()) equals.addStatement("return true");
+    else equals.addStatement("return $L", CodeBlock.join(comparisons, "\n    && "));
+    hashCode.addStatement("return h");
+    toString.addStatement("return sb.append(']').toString()");
+
+    // the object from fromConfig() is an anonymous class declared in the factory
+    MethodSpec isGenerated =
+        MethodSpec.methodBuilder("isGenerated")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .returns(boolean.class)
+            .addParameter(Object.class, "o")
+            .addStatement(
+                "return o instanceof Snapshot || o.getClass().getEnclosingClass() == $T.class",
+                factoryClass)
+            .build();
+
+    return List.of(isGenerated, equals.build(), hashCode.build(), toString.build());
+  }
+
+  /**
+   * Create equals(), hashCode() and toString() methods for a class implementing the annotated type,
+   * calling the methods built by {@link #buildValueMethods(TypeElement, TypeVariableName, Map,
+   * Map)}. Methods that the annotated type already implements are not overridden.
+   *
+   * @param typeBuilder class to add the methods to
+   * @param annotatedType the interface or abstract class being processed.
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param cacheHash if true, the hash code is computed once and held in a field. Only use this if
+   *     the values can't change.
+   */
+  private void addObjectMethods(
+      TypeSpec.Builder typeBuilder,
+      TypeElement annotatedType,
+      TypeVariableName tvn,
+      boolean cacheHash) {
+    if (!implementsObjectMethod(annotatedType, "equals")
+        && !implementsObjectMethod(annotatedType, "hashCode")) {
+      typeBuilder.addMethod(
+          MethodSpec.methodBuilder("equals")
+              .addAnnotation(Override.class)
               .addModifiers(Modifier.PUBLIC)
+              .returns(boolean.class)
+              .addParameter(Object.class, "o")
+              .addStatement("if (o == this) return true")
+              .addStatement(
+                  "return o instanceof $T other && isGenerated(o) && valuesEqual(this, other)", tvn)
+              .build());
+
+      MethodSpec.Builder hashCode =
+          MethodSpec.methodBuilder("hashCode")
               .addAnnotation(Override.class)
-              .returns(TypeName.get(bundle.erasure()))
-              .addJavadoc(bundle.comment());
+              .addModifiers(Modifier.PUBLIC)
+              .returns(int.class);
+      if (cacheHash) {
+        // same idea as String.hashCode(): recomputing after a race gives the same value
+        typeBuilder.addField(int.class, "hash", Modifier.PRIVATE);
+        hashCode
+            .addStatement("int h = hash")
+            .beginControlFlow("if (h == 0)")
+            .addStatement("h = valuesHashCode(this)")
+            .addStatement("hash = h")
+            .endControlFlow()
+            .addStatement("return h");
+      } else {
+        hashCode.addStatement("return valuesHashCode(this)");
+      }
+      typeBuilder.addMethod(hashCode.build());
+    }
 
-      builder.addStatement(
-          "return new $LFactory().fromConfig(config)",
-          types.asElement(bundle.erasure()).getSimpleName());
+    if (!implementsObjectMethod(annotatedType, "toString"))
+      typeBuilder.addMethod(
+          MethodSpec.methodBuilder("toString")
+              .addAnnotation(Override.class)
+              .addModifiers(Modifier.PUBLIC)
+              .returns(String.class)
+              .addStatement("return valuesToString(this)")
+              .build());
+  }
 
-      typeBuilder.addMethod(builder.build());
+  /**
+   * @param annotatedType the interface or abstract class being processed.
+   * @param name equals, hashCode or toString
+   * @return true if the annotated type or one of its superclasses, other than {@link Object},
+   *     implements this method
+   */
+  private boolean implementsObjectMethod(TypeElement annotatedType, String name) {
+    for (Element e : processingEnv.getElementUtils().getAllMembers(annotatedType)) {
+      if (e.getKind() != ElementKind.METHOD || !e.getSimpleName().contentEquals(name)) continue;
+      ExecutableElement method = (ExecutableElement) e;
+      if (method.getModifiers().contains(Modifier.ABSTRACT)
+          || method.getModifiers().contains(Modifier.STATIC)) continue;
+      if (name.equals("equals") && method.getParameters().size() != 1) continue;
+      if (!name.equals("equals") && !method.getParameters().isEmpty()) continue;
+      TypeElement owner = (TypeElement) method.getEnclosingElement();
+      if (!owner.getQualifiedName().contentEquals("java.lang.Object")) return true;
     }
+    return false;
+  }
+
+  /**
+   * Create the nested class returned by {@link ConfigFactory#fromConfigSnapshot(Configuration)}.
+   * Each configuration value is held in a final field and returned by its accessor.
+   *
+   * @param annotatedType the interface or abstract class being processed.
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @return a {@link TypeSpec} for a private static class implementing the annotated type.
+   */
+  private TypeSpec buildSnapshotClass(
+      TypeElement annotatedType,
+      TypeVariableName tvn,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap) {
+
+    TypeSpec.Builder typeBuilder =
+        TypeSpec.classBuilder("Snapshot")
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .addJavadoc("Immutable configuration with every value read once.");
+    if (annotatedType.getKind() == ElementKind.INTERFACE) typeBuilder.addSuperinterface(tvn);
+    else typeBuilder.superclass(tvn);
 
+    MethodSpec.Builder constructor = MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE);
+
+    Map<String, AnnotationBundle> members = new LinkedHashMap<>();
+    Map<String, TypeName> memberTypes = new LinkedHashMap<>();
+    for (Name name : includedMap.keySet()) {
+      members.put(name.toString(), includedMap.get(name));
+      memberTypes.put(name.toString(), TypeName.get(includedMap.get(name).erasure()));
+    }
     for (ExecutableElement method : annotationsMap.keySet()) {
-      AnnotationBundle bundle = annotationsMap.get(method);
-      MethodSpec.Builder builder =
-          MethodSpec.methodBuilder(method.getSimpleName().toString())
+      members.put(method.getSimpleName().toString(), annotationsMap.get(method));
+      memberTypes.put(method.getSimpleName().toString(), TypeName.get(method.getReturnType()));
+    }
+
+    for (String name : members.keySet()) {
+      AnnotationBundle bundle = members.get(name);
+      TypeName type = memberTypes.get(name);
+      typeBuilder.addField(type, name, Modifier.PRIVATE, Modifier.FINAL);
+      constructor.addParameter(type, name);
+      constructor.addStatement("this.$N = $N", name, name);
+      MethodSpec.Builder getter =
+          MethodSpec.methodBuilder(name)
               .addModifiers(Modifier.PUBLIC)
               .addAnnotation(Override.class)
-              .returns(TypeName.get(method.getReturnType()))
+              .returns(type)
               .addJavadoc(bundle.comment());
+      // arrays, EnumSets and EnumMaps can't be made unmodifiable, so each caller gets its own copy
+      if (bundle.primitiveArray()) getter.addStatement("return $N.clone()", name);
+      else if (bundle.set() && isEnumCollection(bundle))
+        getter.addStatement("return $T.copyOf($N)", EnumSet.class, name);
+      else if (bundle.map() && isEnumCollection(bundle))
+        getter.addStatement("return new $T<>($N)", EnumMap.class, name);
+      else getter.addStatement("return $N", name);
+      typeBuilder.addMethod(getter.build());
+    }
+    typeBuilder.addMethod(constructor.build());
+    addObjectMethods(typeBuilder, annotatedType, tvn, true);
 
-      builder.addStatement("String key = $N + $S", prefix, bundle.key());
-      builder
-          .beginControlFlow("if (!config.containsKey(key))")
-          .addStatement("throw new $T($S + key)", RuntimeException.class, "No such key ")
-          .endControlFlow();
-
-      TypeMirror parser;
-      String parserName = null;
-      if (bundle.parserClass().isPresent()) {
-        parser = bundle.parserClass().get();
-        parserName = method.getSimpleName() + "Parser";
-        builder.addStatement("$T $L = new $T()", parser, parserName, parser);
+    return typeBuilder.build();
+  }
+
+  /**
+   * Add statements that read a configuration value from a {@link Configuration} named "config"
+   * into a new local variable. A {@link RuntimeException} is thrown from the generated code if the
+   * key is missing. The value is looked up first, and {@link Configuration#containsKey(String)} is
+   * only called if the lookup could mean the key is missing.
+   *
+   * @param builder method to add the statements to
+   * @param method annotated method
+   * @param bundle annotation values for this method
+   * @param keyName name of a local String variable holding the full key
+   * @param valueName name of the local variable to create
+   */
+  private void addConfigRead(
+      MethodSpec.Builder builder,
+      ExecutableElement method,
+      AnnotationBundle bundle,
+      String keyName,
+      String valueName) {
+    addConfigRead(builder, method, bundle, keyName, valueName, null);
+  }
+
+  /**
+   * Same as {@link #addConfigRead(MethodSpec.Builder, ExecutableElement, AnnotationBundle, String,
+   * String)}, but if fallback is not null a missing key is assigned the value of fallback instead
+   * of throwing. No exception is thrown or caught for a missing key, and fallback is only evaluated
+   * if the key is missing.
+   *
+   * @param builder method to add the statements to
+   * @param method annotated method
+   * @param bundle annotation values for this method
+   * @param keyName name of a local String variable holding the full key
+   * @param valueName name of the local variable to create
+   * @param fallback expression for the value of a missing key, or null to throw
+   */
+  private void addConfigRead(
+      MethodSpec.Builder builder,
+      ExecutableElement method,
+      AnnotationBundle bundle,
+      String keyName,
+      String valueName,
+      CodeBlock fallback) {
+    String parserName = addParserLocal(builder, method, bundle);
+
+    TypeName type = TypeName.get(method.getReturnType());
+    if (bundle.multiValued()) {
+      // an empty array is returned for a missing key
+      String partsName = method.getSimpleName() + "Parts";
+      CodeBlock partsLength = CodeBlock.of("$L.length", partsName);
+      builder.addStatement("String [] $L = config.getStringArray($L)", partsName, keyName);
+      if (fallback == null) {
+        builder.beginControlFlow(
+            "if ($L.length == 0 && !config.containsKey($L))", partsName, keyName);
+        addMissingKey(builder, keyName);
+        builder.endControlFlow();
+        addPartsParse(builder, bundle, parserName, partsName, partsLength, valueName);
+      } else {
+        String parsedName = method.getSimpleName() + "Parsed";
+        builder.addStatement("$T $L", type, valueName);
+        builder.beginControlFlow(
+            "if ($L.length == 0 && !config.containsKey($L))", partsName, keyName);
+        builder.addStatement("$L = $L", valueName, fallback);
+        builder.nextControlFlow("else");
+        addPartsParse(builder, bundle, parserName, partsName, partsLength, parsedName);
+        builder.addStatement("$L = $L", valueName, parsedName);
+        builder.endControlFlow();
       }
+      return;
+    }
 
-      if (ConfigProcessorUtils.isList(bundle.erasure(), processingEnv)) {
-        TypeName argType = TypeName.get(bundle.typeArgs().get(0));
-        ParameterizedTypeName listType =
-            ParameterizedTypeName.get(ClassName.get(java.util.List.class), argType);
-        ParameterizedTypeName arrayListType =
-            ParameterizedTypeName.get(ClassName.get(java.util.ArrayList.class), argType);
-        String listName = method.getSimpleName() + "List";
-        builder.addStatement("$T " + listName + " = new $T()", listType, arrayListType);
-        builder.addStatement("String [] parts = config.getStringArray(key)");
-        builder.beginControlFlow("for (String part : parts)");
-        builder.beginControlFlow("if (part.trim().length() > 0)");
-        if (bundle.parserClass().isPresent()) {
-          builder.addStatement("$L.add($L.fromString(part))", listName, parserName);
-        } else {
-          TypeMirror typeArg = bundle.typeArgs().get(0);
-          if (ConfigProcessorUtils.isByte(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Byte.class);
-          if (ConfigProcessorUtils.isBoolean(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Boolean.class);
-          if (ConfigProcessorUtils.isDouble(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Double.class);
-          if (ConfigProcessorUtils.isFloat(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Float.class);
-          if (ConfigProcessorUtils.isInteger(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Integer.class);
-          if (ConfigProcessorUtils.isLong(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Long.class);
-          if (ConfigProcessorUtils.isShort(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.valueOf(part))", listName, java.lang.Short.class);
-          if (ConfigProcessorUtils.isString(typeArg, processingEnv))
-            builder.addStatement("$L.add(part)", listName);
-        }
+    if (parserName != null || bundle.valueKind() == ValueKind.STRING) {
+      // null is returned for a missing key
+      String stringName = parserName == null ? valueName : method.getSimpleName() + "String";
+      builder.addStatement("String $L = config.getString($L)", stringName, keyName);
+      if (fallback == null) {
+        builder.beginControlFlow(
+            "if ($L == null && !config.containsKey($L))", stringName, keyName);
+        addMissingKey(builder, keyName);
         builder.endControlFlow();
+        if (parserName != null)
+          builder.addStatement(
+              "$T $L = $L.fromString($L)", type, valueName, parserName, stringName);
+      } else if (parserName == null) {
+        builder.addStatement(
+            "if ($L == null && !config.containsKey($L)) $L = $L",
+            stringName,
+            keyName,
+            valueName,
+            fallback);
+      } else {
+        builder.addStatement("$T $L", type, valueName);
+        builder.beginControlFlow(
+            "if ($L == null && !config.containsKey($L))", stringName, keyName);
+        builder.addStatement("$L = $L", valueName, fallback);
+        builder.nextControlFlow("else");
+        builder.addStatement("$L = $L.fromString($L)", valueName, parserName, stringName);
         builder.endControlFlow();
-        builder.addStatement("return $L", listName);
+      }
+      return;
+    }
+
+    String getter =
+        switch (bundle.valueKind()) {
+          case BOOLEAN -> "getBoolean";
+          case BYTE -> "getByte";
+          case DOUBLE -> "getDouble";
+          case FLOAT -> "getFloat";
+          case INTEGER -> "getInt";
+          case LONG -> "getLong";
+          case SHORT -> "getShort";
+          case STRING, ENUM, OTHER -> null;
+        };
+
+    if (getter == null) {
+      processingEnv
+          .getMessager()
+          .printMessage(Diagnostic.Kind.ERROR, "Can't handle return type " + bundle.erasure());
+      return;
+    }
+
+    builder.addStatement("$T $L", type, valueName);
+    if (fallback == null) {
+      // the primitive getters throw NoSuchElementException for a missing key
+      builder.beginControlFlow("try");
+      builder.addStatement("$L = config.$L($L)", valueName, getter, keyName);
+      builder.nextControlFlow("catch ($T e)", NoSuchElementException.class);
+      addMissingKey(builder, keyName);
+      builder.endControlFlow();
+    } else {
+      builder.beginControlFlow("if (config.containsKey($L))", keyName);
+      builder.addStatement("$L = config.$L($L)", valueName, getter, keyName);
+      builder.nextControlFlow("else");
+      builder.addStatement("$L = $L", valueName, fallback);
+      builder.endControlFlow();
+    }
+  }
+
+  /**
+   * Add a statement that throws a {@link RuntimeException} for a missing key.
+   *
+   * @param builder method to add the statement to
+   * @param keyName name of a local String variable holding the full key
+   */
+  private void addMissingKey(MethodSpec.Builder builder, String keyName) {
+    builder.addStatement("throw new $T($S + $L)", RuntimeException.class, "No such key ", keyName);
+  }
+
+  /**
+   * Add statements that read a configuration value from a {@link Map} named "values", as returned
+   * by {@link PropertiesReader#read(java.nio.ByteBuffer)}, into a new local variable. Scalar values
+   * are converted with {@link PropertyConverter}, as {@link Configuration} does, using the first
+   * value if the key was repeated. A {@link RuntimeException} is thrown from the generated code if
+   * the key is missing.
+   *
+   * @param builder method to add the statements to
+   * @param method annotated method
+   * @param bundle annotation values for this method
+   * @param keyName name of a local String variable holding the full key
+   * @param partsName name of a local List&lt;String&gt; variable holding the values for this key,
+   *     or null if the key is missing
+   * @param valueName name of the local variable to create
+   */
+  private void addValuesRead(
+      MethodSpec.Builder builder,
+      ExecutableElement method,
+      AnnotationBundle bundle,
+      String keyName,
+      String partsName,
+      String valueName) {
+    builder.beginControlFlow("if ($L == null)", partsName);
+    addMissingKey(builder, keyName);
+    builder.endControlFlow();
+
+    String parserName = addParserLocal(builder, method, bundle);
+
+    if (bundle.multiValued()) {
+      addPartsParse(
+          builder, bundle, parserName, partsName, CodeBlock.of("$L.size()", partsName), valueName);
+    } else {
+      TypeName type = TypeName.get(method.getReturnType());
+      if (parserName != null) {
+        builder.addStatement(
+            "$T $L = $L.fromString($L.get(0))", type, valueName, parserName, partsName);
       } else {
-        if (bundle.parserClass().isPresent()) {
-          builder.addStatement("return $L.fromString(config.getString(key))", parserName);
+        String converter =
+            switch (bundle.valueKind()) {
+              case BOOLEAN -> "toBoolean";
+              case BYTE -> "toByte";
+              case DOUBLE -> "toDouble";
+              case FLOAT -> "toFloat";
+              case INTEGER -> "toInteger";
+              case LONG -> "toLong";
+              case SHORT -> "toShort";
+              case STRING, ENUM, OTHER -> null;
+            };
+
+        if (bundle.valueKind() == ValueKind.STRING) {
+          builder.addStatement("$T $L = $L.get(0)", type, valueName, partsName);
+        } else if (converter == null) {
+          processingEnv
+              .getMessager()
+              .printMessage(
+                  Diagnostic.Kind.ERROR, "Can't handle return type " + bundle.erasure());
         } else {
-          if (ConfigProcessorUtils.isBoolean(bundle.erasure(), processingEnv)) {
-            builder.addStatement("return config.getBoolean(key)");
-          } else if (ConfigProcessorUtils.isByte(bundle.erasure(), processingEnv)) {
-            builder.addStatement("return config.getByte(key)");
-          } else if (ConfigProcessorUtils.isDouble(bundle.erasure(), processingEnv)) {
-            builder.addStatement("return config.getDouble(key)");
-          } else if (ConfigProcessorUtils.isFloat(bundle.erasure(), processingEnv)) {
-            builder.addStatement("return config.getFloat(key)");
-          } else if (ConfigProcessorUtils.isInteger(bundle.erasure(), processingEnv)) {
-            builder.addStatement("return config.getInt(key)");
-          } else if (ConfigProcessorUtils.isLong(bundle.erasure(), processingEnv)) {
-            builder.addStatement("return config.getLong(key)");
-          } else if (ConfigProcessorUtils.isShort(bundle.erasure(), processingEnv)) {
-            builder.addStatement("return config.getShort(key)");
-          } else if (ConfigProcessorUtils.isString(bundle.erasure(), processingEnv)) {
-            builder.addStatement("return config.getString(key)");
-          } else {
-            processingEnv
-                .getMessager()
-                .printMessage(
-                    Diagnostic.Kind.ERROR,
-                    "Can't handle return type " + m.getReturnType().getCanonicalName());
-          }
+          builder.addStatement(
+              "$T $L = $T.$L($L.get(0))",
+              type,
+              valueName,
+              PropertyConverter.class,
+              converter,
+              partsName);
         }
       }
-      typeBuilder.addMethod(builder.build());
     }
-    methodBuilder.addStatement("return $L", typeBuilder.build());
+  }
 
-    return methodBuilder.build();
+  /**
+   * Add statements that parse a collection of Strings into a new list, primitive array, set or map,
+   * skipping blank elements. Sets and maps are built once with {@link ConfigCollections}.
+   *
+   * @param builder method to add the statements to
+   * @param bundle annotation values for a method returning a list, primitive array, set or map
+   * @param parserName name of a local {@link Parser} variable, or null if there is no parser
+   * @param partsName name of a local variable holding the elements
+   * @param partsLength expression for the number of elements
+   * @param valueName name of the local variable to create
+   */
+  private void addPartsParse(
+      MethodSpec.Builder builder,
+      AnnotationBundle bundle,
+      String parserName,
+      String partsName,
+      CodeBlock partsLength,
+      String valueName) {
+    if (bundle.primitiveArray()) {
+      addArrayParse(builder, bundle, partsName, partsLength, valueName);
+      return;
+    }
+    if (bundle.map()) {
+      addMapParse(builder, bundle, parserName, partsName, partsLength, valueName);
+      return;
+    }
+    TypeName argType = TypeName.get(bundle.typeArgs().get(0));
+    ParameterizedTypeName listType =
+        ParameterizedTypeName.get(ClassName.get(java.util.List.class), argType);
+    ParameterizedTypeName arrayListType =
+        ParameterizedTypeName.get(ClassName.get(java.util.ArrayList.class), argType);
+    String listName = bundle.set() ? valueName + "Elements" : valueName;
+    builder.addStatement("$T $L = new $T($L)", listType, listName, arrayListType, partsLength);
+    builder.beginControlFlow("for (String part : $L)", partsName);
+    builder.beginControlFlow("if (part.trim().length() > 0)");
+    builder.addStatement(
+        "$L.add($L)", listName, parseElement(bundle, parserName, "part"));
+    builder.endControlFlow();
+    builder.endControlFlow();
+    if (bundle.set())
+      builder.addStatement(
+          "$T $L = $L",
+          ParameterizedTypeName.get(
+              isEnumCollection(bundle) ? ClassName.get(EnumSet.class) : ClassName.get(Set.class),
+              argType),
+          valueName,
+          newSet(bundle, listName));
+  }
+
+  /**
+   * @param bundle annotation values for a method returning a set or map
+   * @return true if the method returns an {@link EnumSet} or {@link EnumMap} rather than a Set or
+   *     Map
+   */
+  private static boolean isEnumCollection(AnnotationBundle bundle) {
+    TypeName type = TypeName.get(bundle.erasure());
+    return type.equals(ClassName.get(EnumSet.class)) || type.equals(ClassName.get(EnumMap.class));
+  }
+
+  /**
+   * @param bundle annotation values for a method returning a set
+   * @param elements name of a variable holding a collection of elements
+   * @return an expression for a new set holding the elements. Enums are held in an {@link EnumSet},
+   *     which is unmodifiable unless the method returns an EnumSet. A snapshot returns a copy of
+   *     an EnumSet from each call.
+   */
+  private CodeBlock newSet(AnnotationBundle bundle, String elements) {
+    if (bundle.valueKind() != ValueKind.ENUM)
+      return CodeBlock.of("$T.setOf($L)", ConfigCollections.class, elements);
+    CodeBlock enumSet =
+        CodeBlock.of(
+            "$T.enumSetOf($T.class, $L)",
+            ConfigCollections.class,
+            TypeName.get(valueType(bundle)),
+            elements);
+    if (isEnumCollection(bundle)) return enumSet;
+    return CodeBlock.of("$T.unmodifiableSet($L)", Collections.class, enumSet);
+  }
+
+  /**
+   * @param bundle annotation values for a method returning a map
+   * @param entries names of variables holding a list of keys and a list of values, or a single map
+   * @return an expression for a new map holding the entries. Maps with enum keys are held in an
+   *     {@link EnumMap}, which is unmodifiable unless the method returns an EnumMap. A snapshot
+   *     returns a copy of an EnumMap from each call.
+   */
+  private CodeBlock newMap(AnnotationBundle bundle, String entries) {
+    if (bundle.keyKind().orElse(null) != ValueKind.ENUM)
+      return CodeBlock.of("$T.mapOf($L)", ConfigCollections.class, entries);
+    CodeBlock enumMap =
+        CodeBlock.of(
+            "$T.enumMapOf($T.class, $L)",
+            ConfigCollections.class,
+            TypeName.get(bundle.typeArgs().get(0)),
+            entries);
+    if (isEnumCollection(bundle)) return enumMap;
+    return CodeBlock.of("$T.unmodifiableMap($L)", Collections.class, enumMap);
+  }
+
+  /**
+   * Add statements that parse a collection of Strings into a new map, skipping blank elements.
+   * Each element is a key and value separated by the first '='. If a key appears more than once,
+   * its last value is used.
+   *
+   * @param builder method to add the statements to
+   * @param bundle annotation values for a method returning a map
+   * @param parserName name of a local {@link Parser} variable for the values, or null if there is
+   *     no parser
+   * @param partsName name of a local variable holding the elements
+   * @param partsLength expression for the number of elements
+   * @param valueName name of the local variable to create
+   */
+  private void addMapParse(
+      MethodSpec.Builder builder,
+      AnnotationBundle bundle,
+      String parserName,
+      String partsName,
+      CodeBlock partsLength,
+      String valueName) {
+    TypeName keyType = TypeName.get(bundle.typeArgs().get(0));
+    TypeName valueType = TypeName.get(bundle.typeArgs().get(1));
+    String keysName = valueName + "Keys";
+    String valuesName = valueName + "Values";
+    builder.addStatement(
+        "$T $L = new $T($L)",
+        ParameterizedTypeName.get(ClassName.get(List.class), keyType),
+        keysName,
+        ParameterizedTypeName.get(ClassName.get(ArrayList.class), keyType),
+        partsLength);
+    builder.addStatement(
+        "$T $L = new $T($L)",
+        ParameterizedTypeName.get(ClassName.get(List.class), valueType),
+        valuesName,
+        ParameterizedTypeName.get(ClassName.get(ArrayList.class), valueType),
+        partsLength);
+    String keyParserName = addKeyParserLocal(builder, bundle, valueName);
+    builder.beginControlFlow("for (String part : $L)", partsName);
+    builder.beginControlFlow("if (part.trim().length() > 0)");
+    builder.addStatement("int separator = part.indexOf('=')");
+    builder.addStatement(
+        "if (separator < 0) throw new $T($S + part)",
+        IllegalArgumentException.class,
+        "Expected key=value, found ");
+    builder.addStatement(
+        "$L.add($L)",
+        keysName,
+        parseScalar(
+            bundle.keyKind().orElse(ValueKind.OTHER),
+            bundle.typeArgs().get(0),
+            keyParserName,
+            "part.substring(0, separator).trim()"));
+    builder.addStatement(
+        "$L.add($L)",
+        valuesName,
+        parseElement(bundle, parserName, "part.substring(separator + 1).trim()"));
+    builder.endControlFlow();
+    builder.endControlFlow();
+    builder.addStatement(
+        "$T $L = $L",
+        ParameterizedTypeName.get(
+            isEnumCollection(bundle) ? ClassName.get(EnumMap.class) : ClassName.get(Map.class),
+            keyType,
+            valueType),
+        valueName,
+        newMap(bundle, keysName + ", " + valuesName));
+  }
+
+  /**
+   * @param bundle annotation values for a method returning a list
+   * @param parserName name of a local {@link Parser} variable, or null if there is no parser
+   * @param part name of the String variable to parse
+   * @return an expression converting the String to a list element
+   */
+  private CodeBlock parseElement(AnnotationBundle bundle, String parserName, String part) {
+    return parseScalar(
+        bundle.valueKind(), bundle.typeArgs().get(bundle.map() ? 1 : 0), parserName, part);
+  }
+
+  /**
+   * @param kind kind of the element
+   * @param type type of the element, used in error messages
+   * @param parserName name of a local {@link Parser} variable, or null if there is no parser
+   * @param part expression for the String to parse
+   * @return an expression converting the String to an element
+   */
+  private CodeBlock parseScalar(ValueKind kind, TypeMirror type, String parserName, String part) {
+    if (parserName != null) return CodeBlock.of("$L.fromString($L)", parserName, part);
+    return switch (kind) {
+      case STRING -> CodeBlock.of("$L", part);
+      case ENUM, OTHER -> {
+        processingEnv
+            .getMessager()
+            .printMessage(Diagnostic.Kind.ERROR, "Can't handle element type " + type);
+        yield CodeBlock.of("$L", part);
+      }
+      default -> CodeBlock.of("$T.valueOf($L)", kind.boxedClass(), part);
+    };
+  }
+
+  /**
+   * Add statements that parse an array of Strings into a new primitive array, skipping blank
+   * elements. Each element is parsed directly into the array without boxing.
+   *
+   * @param builder method to add the statements to
+   * @param bundle annotation values for a method returning a primitive array
+   * @param partsName name of a local variable holding the elements
+   * @param partsLength expression for the number of elements
+   * @param valueName name of the local array variable to create
+   */
+  private void addArrayParse(
+      MethodSpec.Builder builder,
+      AnnotationBundle bundle,
+      String partsName,
+      CodeBlock partsLength,
+      String valueName) {
+    TypeMirror component = bundle.typeArgs().get(0);
+    String countName = valueName + "Count";
+    builder.addStatement(
+        "$T $L = new $T[$L]",
+        TypeName.get(bundle.erasure()),
+        valueName,
+        TypeName.get(component),
+        partsLength);
+    builder.addStatement("int $L = 0", countName);
+    builder.beginControlFlow("for (String part : $L)", partsName);
+    builder.beginControlFlow("if (part.trim().length() > 0)");
+    builder.addStatement("$L[$L++] = $L", valueName, countName, parsePrimitive(component, "part"));
+    builder.endControlFlow();
+    builder.endControlFlow();
+    builder.addStatement(
+        "if ($L < $L.length) $L = $T.copyOf($L, $L)",
+        countName,
+        valueName,
+        valueName,
+        Arrays.class,
+        valueName,
+        countName);
+  }
+
+  /**
+   * @param component primitive type
+   * @param part name of the String variable to parse
+   * @return an expression converting the String to a primitive value
+   */
+  private CodeBlock parsePrimitive(TypeMirror component, String part) {
+    return switch (component.getKind()) {
+      case BOOLEAN -> CodeBlock.of("$T.parseBoolean($L)", java.lang.Boolean.class, part);
+      case BYTE -> CodeBlock.of("$T.parseByte($L)", java.lang.Byte.class, part);
+      case DOUBLE -> CodeBlock.of("$T.parseDouble($L)", java.lang.Double.class, part);
+      case FLOAT -> CodeBlock.of("$T.parseFloat($L)", java.lang.Float.class, part);
+      case INT -> CodeBlock.of("$T.parseInt($L)", java.lang.Integer.class, part);
+      case LONG -> CodeBlock.of("$T.parseLong($L)", java.lang.Long.class, part);
+      case SHORT -> CodeBlock.of("$T.parseShort($L)", java.lang.Short.class, part);
+      default -> {
+        processingEnv
+            .getMessager()
+            .printMessage(Diagnostic.Kind.ERROR, "Can't handle array component type " + component);
+        yield CodeBlock.of("$L", part);
+      }
+    };
+  }
+
+  /**
+   * @param bundle annotation values for a method returning a list, array, set or map
+   * @param value expression for the value of the method
+   * @return an expression for the elements to format with {@link #formatElement(AnnotationBundle,
+   *     String, String)}. For a map these are its entries.
+   */
+  private CodeBlock elements(AnnotationBundle bundle, CodeBlock value) {
+    return bundle.map() ? CodeBlock.of("$L.entrySet()", value) : value;
+  }
+
+  /**
+   * @param bundle annotation values for a method returning a list, array, set or map
+   * @param parserName name of a local {@link Parser} variable, or null if there is no parser
+   * @param element name of the variable to convert. For a map this is a {@link Map.Entry}.
+   * @return an expression converting the element to a String. A map entry is written as
+   *     key=value.
+   */
+  private CodeBlock formatElement(AnnotationBundle bundle, String parserName, String element) {
+    if (bundle.map()) {
+      CodeBlock keyParser = hasKeyParser(bundle) ? keyParserInstance(bundle) : null;
+      return CodeBlock.of(
+          "$L + $S + $L",
+          formatScalar(
+              bundle.keyKind().orElse(ValueKind.OTHER), keyParser, element + ".getKey()"),
+          "=",
+          formatScalar(
+              bundle.valueKind(),
+              parserName == null ? null : CodeBlock.of("$L", parserName),
+              element + ".getValue()"));
+    }
+    return formatScalar(
+        bundle.valueKind(), parserName == null ? null : CodeBlock.of("$L", parserName), element);
+  }
+
+  private CodeBlock formatScalar(ValueKind kind, CodeBlock parser, String element) {
+    if (parser != null) return CodeBlock.of("$L.toString($L)", parser, element);
+    return switch (kind) {
+      case STRING, ENUM, OTHER -> CodeBlock.of("$L", element);
+      default -> CodeBlock.of("$T.toString($L)", kind.boxedClass(), element);
+    };
+  }
+
+  /**
+   * Create the newBuilder() and toBuilder() methods of the factory class.
+   *
+   * @param factoryName the name of the factory class being generated.
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @return methods returning a new {@link #buildBuilderClass(ClassName, TypeVariableName, Map,
+   *     Map)} instance.
+   */
+  private List<MethodSpec> buildBuilderMethods(ClassName factoryName, TypeVariableName tvn) {
+    ClassName builderName = factoryName.nestedClass("Builder");
+    List<MethodSpec> methods = new ArrayList<>();
+    methods.add(
+        MethodSpec.methodBuilder("newBuilder")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(builderName)
+            .addJavadoc("@return a builder initialized with the default values")
+            .addStatement("return new Builder(TEMPLATE)")
+            .build());
+    methods.add(
+        MethodSpec.methodBuilder("toBuilder")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(builderName)
+            .addJavadoc("@param t object to copy\n")
+            .addJavadoc("@return a builder initialized with the values of t")
+            .addParameter(tvn, "t")
+            .addStatement("return new Builder(t)")
+            .build());
+    return methods;
+  }
+
+  /**
+   * Create the nested builder class. It holds one mutable value per key, and a builder for each
+   * included type, so that any number of values can be changed before a new object, configuration
+   * or properties file is created once.
+   *
+   * @param factoryName the name of the factory class being generated.
+   * @param tvn the type variable name representing the generic type of the object being processed.
+   * @param annotationsMap a map containing methods and associated metadata.
+   * @param includedMap a map containing classes to be added from an {@link Include} annotation.
+   * @return a {@link TypeSpec} for an inner class of the factory.
+   */
+  private TypeSpec buildBuilderClass(
+      ClassName factoryName,
+      TypeVariableName tvn,
+      Map<ExecutableElement, AnnotationBundle> annotationsMap,
+      Map<Name, AnnotationBundle> includedMap) {
+
+    ClassName builderName = factoryName.nestedClass("Builder");
+    TypeSpec.Builder typeBuilder =
+        TypeSpec.classBuilder(builderName)
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addJavadoc(
+                "Mutable builder for $T.  Nothing is converted until one of build(), toConfig() or"
+                    + " writeTo() is called.",
+                tvn);
+
+    MethodSpec.Builder constructor =
+        MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).addParameter(tvn, "t");
+    List<MethodSpec> methods = new ArrayList<>();
+    List<CodeBlock> args = new ArrayList<>();
+
+    for (Name name : includedMap.keySet()) {
+      AnnotationBundle bundle = includedMap.get(name);
+      ClassName includedFactory = includedFactoryClass(bundle);
+      ClassName includedBuilder = includedFactory.nestedClass("Builder");
+      TypeName includedType = TypeName.get(bundle.erasure());
+
+      typeBuilder.addField(includedBuilder, name.toString(), Modifier.PRIVATE);
+      constructor.addStatement(
+          "this.$L = $L.toBuilder(t.$L())", name, includedFactoryField(name), name);
+      methods.add(
+          MethodSpec.methodBuilder(name + "Builder")
+              .addModifiers(Modifier.PUBLIC)
+              .returns(includedBuilder)
+              .addJavadoc("@return builder for the values of $L", name)
+              .addStatement("return $L", name)
+              .build());
+      methods.add(
+          MethodSpec.methodBuilder(withName(name.toString()))
+              .addModifiers(Modifier.PUBLIC)
+              .returns(builderName)
+              .addJavadoc("Replace the value of $L", name)
+              .addParameter(includedType, name.toString())
+              .addStatement("this.$L = $L.toBuilder($L)", name, includedFactoryField(name), name)
+              .addStatement("return this")
+              .build());
+      args.add(CodeBlock.of("$L.build()", name));
+    }
+
+    for (ExecutableElement method : annotationsMap.keySet()) {
+      AnnotationBundle bundle = annotationsMap.get(method);
+      String name = method.getSimpleName().toString();
+      TypeName type = TypeName.get(method.getReturnType());
+
+      typeBuilder.addField(type, name, Modifier.PRIVATE);
+      constructor.addStatement("this.$L = t.$L()", name, name);
+      MethodSpec.Builder setter =
+          MethodSpec.methodBuilder(withName(name))
+              .addModifiers(Modifier.PUBLIC)
+              .returns(builderName)
+              .addJavadoc("Replace the value of $L", name)
+              .addParameter(type, name)
+              .addStatement("this.$L = $L", name, name)
+              .addStatement("return this");
+      methods.add(setter.build());
+
+      // copy mutable values so the built object can't be changed through the builder
+      if (bundle.list())
+        args.add(
+            CodeBlock.of(
+                "$T.unmodifiableList(new $T<>($L))",
+                Collections.class,
+                java.util.ArrayList.class,
+                name));
+      else if (bundle.primitiveArray())
+        args.add(CodeBlock.of("$L.clone()", name));
+      else if (bundle.set()) args.add(newSet(bundle, name));
+      else if (bundle.map()) args.add(newMap(bundle, name));
+      else args.add(CodeBlock.of("$L", name));
+    }
+
+    typeBuilder.addMethod(constructor.build());
+    typeBuilder.addMethods(methods);
+
+    typeBuilder.addMethod(
+        MethodSpec.methodBuilder("build")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(tvn)
+            .addJavadoc("@return an immutable object with the values in this builder")
+            .addStatement("return new Snapshot($L)", CodeBlock.join(args, ", "))
+            .build());
+    typeBuilder.addMethod(
+        MethodSpec.methodBuilder("toConfig")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(org.apache.commons.configuration2.PropertiesConfiguration.class)
+            .addJavadoc("@return a PropertiesConfiguration with the values in this builder")
+            .addStatement("return $T.this.toConfig(build())", factoryName)
+            .build());
+    typeBuilder.addMethod(
+        MethodSpec.methodBuilder("writeTo")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(Appendable.class, "out")
+            .addException(IOException.class)
+            .addJavadoc("Write the values in this builder as properties text.")
+            .addStatement("$T.this.writeTo(build(), out)", factoryName)
+            .build());
+    typeBuilder.addMethod(
+        MethodSpec.methodBuilder("writeTo")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(java.nio.channels.WritableByteChannel.class, "channel")
+            .addException(IOException.class)
+            .addJavadoc("Write the values in this builder as properties text.")
+            .addStatement("$T.this.writeTo(build(), channel)", factoryName)
+            .build());
+
+    return typeBuilder.build();
+  }
+
+  /**
+   * @param bundle annotation values for a method annotated with {@link Include}
+   * @return the factory class generated for the included type
+   */
+  private ClassName includedFactoryClass(AnnotationBundle bundle) {
+    Element included = processingEnv.getTypeUtils().asElement(bundle.erasure());
+    return ClassName.get(
+        processingEnv.getElementUtils().getPackageOf(included).getQualifiedName().toString(),
+        included.getSimpleName() + "Factory");
+  }
+
+  /**
+   * @param name name of a method annotated with {@link Include}
+   * @return name of the field holding the factory for the included type
+   */
+  private static String includedFactoryField(Name name) {
+    return name + "Factory";
+  }
+
+  /**
+   * @param methodName name of an annotated method
+   * @return name of the method replacing its value, e.g. withDoubles for doubles
+   */
+  private static String withName(String methodName) {
+    return String.format(
+        "with%s%s", methodName.substring(0, 1).toUpperCase(), methodName.substring(1));
   }
 
   /**
@@ -775,9 +3078,7 @@ public class ConfigProcessor extends AbstractProcessor {
 
     for (ExecutableElement method : annotationsMap.keySet()) {
       String methodName = method.getSimpleName().toString();
-      String camelCase =
-          String.format(
-              "with%s%s", methodName.substring(0, 1).toUpperCase(), methodName.substring(1));
+      String camelCase = withName(methodName);
       TypeName propertiesConfigurationClass =
           TypeName.get(org.apache.commons.configuration2.PropertiesConfiguration.class);
 
@@ -807,16 +3108,10 @@ public class ConfigProcessor extends AbstractProcessor {
       AnnotationBundle ab = annotationsMap.get(method);
       String key = ab.key();
 
-      TypeMirror parser;
-      String parserName = null;
-      if (ab.parserClass().isPresent()) {
-        parser = ab.parserClass().get();
-        parserName = method.getSimpleName() + "Parser";
-        builder.addStatement("$T " + parserName + " = new $T()", parser, parser);
-      }
+      String parserName = addParserLocal(builder, method, ab);
 
-      if (ConfigProcessorUtils.isList(ab.erasure(), processingEnv)) {
-        // if it's a list, store a List<String> in the Apache configuration
+      if (ab.multiValued()) {
+        // if it is a list, array, set or map, store a List<String> in the Apache configuration
         TypeVariableName stringType = TypeVariableName.get(java.lang.String.class.getName());
         ParameterizedTypeName listType =
             ParameterizedTypeName.get(ClassName.get(java.util.List.class), stringType);
@@ -824,32 +3119,14 @@ public class ConfigProcessor extends AbstractProcessor {
             ParameterizedTypeName.get(ClassName.get(java.util.ArrayList.class), stringType);
         String listName = method.getSimpleName() + "List";
         builder.addStatement("$T " + listName + " = new $T()", listType, arrayListType);
-        builder.beginControlFlow("for (var element : replaceValue)");
-        if (ab.parserClass().isPresent()) {
-          builder.addStatement("$L.add($L.toString(element))", listName, parserName);
-        } else {
-          TypeMirror typeArg = ab.typeArgs().get(0);
-          if (ConfigProcessorUtils.isByte(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.toString(element))", listName, java.lang.Byte.class);
-          if (ConfigProcessorUtils.isBoolean(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.toString(element))", listName, java.lang.Boolean.class);
-          if (ConfigProcessorUtils.isDouble(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.toString(element))", listName, java.lang.Double.class);
-          if (ConfigProcessorUtils.isFloat(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.toString(element))", listName, java.lang.Float.class);
-          if (ConfigProcessorUtils.isInteger(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.toString(element))", listName, java.lang.Integer.class);
-          if (ConfigProcessorUtils.isLong(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.toString(element))", listName, java.lang.Long.class);
-          if (ConfigProcessorUtils.isShort(typeArg, processingEnv))
-            builder.addStatement("$L.add($T.toString(element))", listName, java.lang.Short.class);
-          if (ConfigProcessorUtils.isString(typeArg, processingEnv))
-            builder.addStatement("$L.add(element)", listName);
-        }
+        builder.beginControlFlow(
+            "for (var element : $L)", elements(ab, CodeBlock.of("replaceValue")));
+        builder.addStatement(
+            "$L.add($L)", listName, formatElement(ab, parserName, "element"));
         builder.endControlFlow();
         builder.addStatement("config.setProperty($N + $S, $L)", prefixMemberName, key, listName);
       } else {
-        if (ab.parserClass().isPresent()) {
+        if (parserName != null) {
           // store the serialized string as the property
           builder.addStatement(
               "config.setProperty($N + $S, $L.toString(replaceValue))",
@@ -20,8 +20,15 @@ package jackfruit.processor;
  * #L%
  */
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
@@ -29,6 +36,39 @@ import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
 
 public class ConfigProcessorUtils {
+
+  // erased type of each class compared against, for each compilation
+  private static final Map<ProcessingEnvironment, Map<Class<?>, TypeMirror>> erasures =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Forget the types cached for this compilation. Types from one round should not be used in the
+   * next, so this is called at the start and end of each round.
+   *
+   * @param processingEnv Processing environment providing by the tool framework, from {@link
+   *     javax.annotation.processing.AbstractProcessor}
+   */
+  static void clearCache(ProcessingEnvironment processingEnv) {
+    erasures.remove(processingEnv);
+  }
+
+  /**
+   * @param typeMirror either {@link AnnotationBundle#erasure()} for the return value, or an element
+   *     of {@link AnnotationBundle#typeArgs()} for a parameterized type
+   * @param processingEnv Processing environment providing by the tool framework, from {@link
+   *     javax.annotation.processing.AbstractProcessor}
+   * @return the kind of value. This is {@link ValueKind#OTHER} if it is not a String, primitive,
+   *     boxed or enum type.
+   */
+  public static ValueKind valueKind(TypeMirror typeMirror, ProcessingEnvironment processingEnv) {
+    if (isEnum(typeMirror, processingEnv)) return ValueKind.ENUM;
+    for (ValueKind kind : ValueKind.values()) {
+      if (kind == ValueKind.ENUM || kind == ValueKind.OTHER) continue;
+      if (typeMirror.getKind() == kind.primitiveKind()
+          || isClass(typeMirror, processingEnv, kind.boxedClass())) return kind;
+    }
+    return ValueKind.OTHER;
+  }
   /**
    *
    * @param typeMirror the return type without any parameters (e.g. List rather than
@@ -41,6 +81,52 @@ public class ConfigProcessorUtils {
     return isClass(typeMirror, processingEnv, java.util.List.class);
   }
 
+  /**
+   * @param typeMirror the return type without any parameters (e.g. Set rather than
+   *     Set&lt;String&gt;)
+   * @param processingEnv Processing environment providing by the tool framework, from {@link
+   *     javax.annotation.processing.AbstractProcessor}
+   * @return true if this annotated member returns a {@link java.util.Set}
+   */
+  public static boolean isSet(TypeMirror typeMirror, ProcessingEnvironment processingEnv) {
+    return isClass(typeMirror, processingEnv, java.util.Set.class);
+  }
+
+  /**
+   * @param typeMirror the return type without any parameters (e.g. Map rather than Map&lt;String,
+   *     Integer&gt;)
+   * @param processingEnv Processing environment providing by the tool framework, from {@link
+   *     javax.annotation.processing.AbstractProcessor}
+   * @return true if this annotated member returns a {@link Map}
+   */
+  public static boolean isMap(TypeMirror typeMirror, ProcessingEnvironment processingEnv) {
+    return isClass(typeMirror, processingEnv, java.util.Map.class);
+  }
+
+  /**
+   * @param typeMirror the return type of the annotated member
+   * @param processingEnv Processing environment providing by the tool framework, from {@link
+   *     javax.annotation.processing.AbstractProcessor}
+   * @return true if this annotated member returns an array of primitives (e.g. double[])
+   */
+  public static boolean isPrimitiveArray(TypeMirror typeMirror, ProcessingEnvironment processingEnv) {
+    return typeMirror.getKind() == TypeKind.ARRAY
+        && ((ArrayType) typeMirror).getComponentType().getKind().isPrimitive();
+  }
+
+  /**
+   * @param typeMirror either {@link AnnotationBundle#erasure()} for the return value, or an element
+   *     of {@link AnnotationBundle#typeArgs()} for a parameterized type
+   * @param processingEnv Processing environment providing by the tool framework, from {@link
+   *     javax.annotation.processing.AbstractProcessor}
+   * @return true if this annotated member returns an enum
+   */
+  public static boolean isEnum(TypeMirror typeMirror, ProcessingEnvironment processingEnv) {
+    if (typeMirror.getKind() != TypeKind.DECLARED) return false;
+    Element element = processingEnv.getTypeUtils().asElement(typeMirror);
+    return element != null && element.getKind() == ElementKind.ENUM;
+  }
+
   /**
    * @param typeMirror either {@link AnnotationBundle#erasure()} for the return value, or an element
    *     of {@link AnnotationBundle#typeArgs()} for a parameterized type
@@ -138,6 +224,18 @@ public class ConfigProcessorUtils {
 
   private static boolean isClass(
       TypeMirror typeMirror, ProcessingEnvironment processingEnv, Class<?> compareTo) {
+    if (typeMirror.getKind().isPrimitive()) return false;
+    TypeMirror erasure =
+        erasures
+            .computeIfAbsent(processingEnv, p -> Collections.synchronizedMap(new HashMap<>()))
+            .computeIfAbsent(compareTo, c -> erasure(processingEnv, c));
+    return erasure != null && processingEnv.getTypeUtils().isSubtype(typeMirror, erasure);
+  }
+
+  /**
+   * @return the erased type of compareTo, or null if it can't be found
+   */
+  private static TypeMirror erasure(ProcessingEnvironment processingEnv, Class<?> compareTo) {
     Elements elements = processingEnv.getElementUtils();
     Types types = processingEnv.getTypeUtils();
 
@@ -147,9 +245,9 @@ public class ConfigProcessorUtils {
           .printMessage(
               Diagnostic.Kind.ERROR,
               String.format("Cannot recognize %s\n", compareTo.getCanonicalName()));
+      return null;
     }
 
-    return types.isSubtype(
-        typeMirror, types.erasure(elements.getTypeElement(compareTo.getCanonicalName()).asType()));
+    return types.erasure(elements.getTypeElement(compareTo.getCanonicalName()).asType());
   }
 }
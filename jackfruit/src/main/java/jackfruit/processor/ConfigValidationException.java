@@ -0,0 +1,55 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+/**
+ * Thrown by {@link ConfigFactory#requireValid(org.apache.commons.configuration2.Configuration)}
+ * with every problem found in a configuration.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+public class ConfigValidationException extends RuntimeException {
+
+  private static final long serialVersionUID = 1L;
+
+  private final List<String> problems;
+
+  /**
+   * @param problems a description of each problem
+   */
+  public ConfigValidationException(List<String> problems) {
+    super(
+        problems.size()
+            + (problems.size() == 1 ? " configuration problem:" : " configuration problems:")
+            + System.lineSeparator()
+            + String.join(System.lineSeparator(), problems));
+    this.problems = List.copyOf(problems);
+  }
+
+  /**
+   * @return a description of each problem
+   */
+  public List<String> getProblems() {
+    return problems;
+  }
+}
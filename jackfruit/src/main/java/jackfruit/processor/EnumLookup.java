@@ -0,0 +1,102 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import jackfruit.annotations.Parser;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Converts enum constants to and from strings, matching names without regard to case. Names are
+ * looked up in tables built once for each enum type, so no exception is thrown and caught for a
+ * name that differs from the constant only in case, as it would be with {@link Enum#valueOf(Class,
+ * String)}. An exact match is tried first. If two constants differ only in case, a name matching
+ * neither exactly resolves to the first one declared.
+ *
+ * <p>Generated factories create one instance for each enum type. Instances are immutable and may
+ * be shared between threads.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ * @param <E> enum type
+ */
+public final class EnumLookup<E extends Enum<E>> implements Parser<E> {
+
+  private final Class<E> type;
+  private final Map<String, E> exact;
+  private final Map<String, E> ignoreCase;
+
+  private EnumLookup(Class<E> type) {
+    this.type = type;
+    E[] constants = type.getEnumConstants();
+    this.exact = new HashMap<>(constants.length * 2);
+    this.ignoreCase = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (E constant : constants) {
+      exact.put(constant.name(), constant);
+      ignoreCase.putIfAbsent(constant.name(), constant);
+    }
+  }
+
+  /**
+   * @param <E> enum type
+   * @param type enum class
+   * @return a new lookup for the constants of type
+   */
+  public static <E extends Enum<E>> EnumLookup<E> of(Class<E> type) {
+    return new EnumLookup<>(type);
+  }
+
+  /**
+   * @return the enum class
+   */
+  public Class<E> type() {
+    return type;
+  }
+
+  /**
+   * @param s name of a constant, in any case. Leading and trailing whitespace is ignored.
+   * @return the matching constant
+   * @throws IllegalArgumentException if no constant has this name
+   */
+  @Override
+  public E fromString(String s) {
+    E constant = exact.get(s);
+    if (constant != null) return constant;
+    if (s != null) {
+      constant = ignoreCase.get(s.strip());
+      if (constant != null) return constant;
+    }
+    throw new IllegalArgumentException(
+        String.format(
+            "No constant %s in %s, expected one of %s",
+            s, type.getName(), Arrays.toString(type.getEnumConstants())));
+  }
+
+  /**
+   * @param e enum constant
+   * @return the name of the constant, or null if e is null
+   */
+  @Override
+  public String toString(E e) {
+    return e == null ? null : e.name();
+  }
+}
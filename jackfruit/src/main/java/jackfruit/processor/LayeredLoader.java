@@ -0,0 +1,285 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Builds an object of type T from an ordered list of sources, such as default values, properties
+ * files, environment variables and system properties. Each source is a layer, and a key in a later
+ * layer replaces the same key in earlier layers. {@link #load()} reads every layer and resolves
+ * each key once into a single map, which is converted with {@link ConfigFactory#fromValues(Map)}.
+ * The result is an immutable snapshot, so reading a value does not depend on the number of layers,
+ * unlike a CompositeConfiguration which consults each layer on every call.
+ *
+ * <p>Environment variables and system properties are only checked for the keys in {@link
+ * ConfigFactory#keys()}. A system property has the same name as the key. An environment variable
+ * has the key in upper case, with each character that is not a letter or digit replaced by '_', so
+ * prefix.doubleMethod is read from PREFIX_DOUBLEMETHOD. These hold a single string, so if the key
+ * is {@link ConfigFactory#isMultiValued(String) multi valued} the string is split on whitespace,
+ * in the same way as a {@link jackfruit.annotations.DefaultValue}.
+ *
+ * <p>The layers are added once and can be loaded any number of times. Files, environment variables
+ * and system properties are read again by each call to {@link #load()}.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ * @param <T> configuration class with annotations
+ */
+public final class LayeredLoader<T> {
+
+  /** Name of the layer added by {@link #addDefaults()} */
+  public static final String DEFAULTS = "defaults";
+
+  /** Name of the layer added by {@link #addEnvironment()} */
+  public static final String ENVIRONMENT = "environment";
+
+  /** Name of the layer added by {@link #addSystemProperties()} */
+  public static final String SYSTEM_PROPERTIES = "system properties";
+
+  @FunctionalInterface
+  private interface Source {
+    Map<String, List<String>> read() throws IOException;
+  }
+
+  private record Layer(String name, Source source) {}
+
+  private final ConfigFactory<T> factory;
+  private final List<String> keys;
+  private final List<Layer> layers = new ArrayList<>();
+
+  /**
+   * @param factory factory used to convert the resolved values
+   */
+  public LayeredLoader(ConfigFactory<T> factory) {
+    this.factory = factory;
+    this.keys = factory.keys();
+  }
+
+  /**
+   * Add a layer with the value of every key from {@link ConfigFactory#getTemplate()}. This is
+   * usually the first layer, so that keys missing from every other layer have their default value.
+   *
+   * @return this object
+   */
+  public LayeredLoader<T> addDefaults() {
+    StringBuilder text = new StringBuilder();
+    try {
+      factory.writeTo(factory.getTemplate(), text);
+    } catch (IOException e) {
+      // not thrown by StringBuilder
+      throw new UncheckedIOException(e);
+    }
+    // the template never changes, so it is only read once
+    Map<String, List<String>> values =
+        PropertiesReader.read(
+            ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.ISO_8859_1)));
+    layers.add(new Layer(DEFAULTS, () -> values));
+    return this;
+  }
+
+  /**
+   * Add a layer read from a properties file with {@link PropertiesReader}. The layer is named with
+   * the path of the file.
+   *
+   * @param path properties file, in ISO-8859-1. It must exist when {@link #load()} is called.
+   * @return this object
+   */
+  public LayeredLoader<T> addFile(Path path) {
+    layers.add(new Layer(path.toString(), () -> read(path)));
+    return this;
+  }
+
+  /**
+   * Same as {@link #addFile(Path)}, except that the layer is empty if the file does not exist. This
+   * is useful for files that only some environments have.
+   *
+   * @param path properties file, in ISO-8859-1
+   * @return this object
+   */
+  public LayeredLoader<T> addOptionalFile(Path path) {
+    layers.add(
+        new Layer(
+            path.toString(), () -> Files.exists(path) ? read(path) : Collections.emptyMap()));
+    return this;
+  }
+
+  /**
+   * Same as {@link #addEnvironment(String)} with no prefix.
+   *
+   * @return this object
+   */
+  public LayeredLoader<T> addEnvironment() {
+    return addEnvironment("");
+  }
+
+  /**
+   * Add a layer read from environment variables.
+   *
+   * @param prefix added to the start of each environment variable name, e.g. "MYAPP_"
+   * @return this object
+   */
+  public LayeredLoader<T> addEnvironment(String prefix) {
+    layers.add(
+        new Layer(ENVIRONMENT, () -> lookup(key -> System.getenv(prefix + environmentName(key)))));
+    return this;
+  }
+
+  /**
+   * Add a layer read from system properties, e.g. set with -Dprefix.key=value.
+   *
+   * @return this object
+   */
+  public LayeredLoader<T> addSystemProperties() {
+    layers.add(new Layer(SYSTEM_PROPERTIES, () -> lookup(System::getProperty)));
+    return this;
+  }
+
+  /**
+   * Add a layer from any other source, such as command line arguments.
+   *
+   * @param name name of the layer, reported by {@link Result#getOrigin(String)}
+   * @param values map of each key to its values. The map is read by each call to {@link #load()}.
+   * @return this object
+   */
+  public LayeredLoader<T> add(String name, Map<String, List<String>> values) {
+    layers.add(new Layer(name, () -> values));
+    return this;
+  }
+
+  /**
+   * Read every layer and resolve each key to the value from the last layer that has it.
+   *
+   * @return the object built from the resolved values, and the layer each value came from
+   * @throws IOException if a file can't be read
+   */
+  public Result<T> load() throws IOException {
+    Map<String, List<String>> values = new HashMap<>();
+    Map<String, String> layerOf = new HashMap<>();
+    for (Layer layer : layers) {
+      for (Map.Entry<String, List<String>> entry : layer.source().read().entrySet()) {
+        values.put(entry.getKey(), entry.getValue());
+        layerOf.put(entry.getKey(), layer.name());
+      }
+    }
+
+    T t = factory.fromValues(values);
+
+    Map<String, String> origins = new LinkedHashMap<>();
+    for (String key : keys) {
+      String origin = layerOf.get(key);
+      if (origin != null) origins.put(key, origin);
+    }
+    return new Result<>(t, Collections.unmodifiableMap(origins));
+  }
+
+  /**
+   * @param key full key, including any prefix
+   * @return name of the environment variable for the key
+   */
+  public static String environmentName(String key) {
+    StringBuilder name = new StringBuilder(key.length());
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      name.append(Character.isLetterOrDigit(c) ? c : '_');
+    }
+    return name.toString().toUpperCase(Locale.ROOT);
+  }
+
+  private static Map<String, List<String>> read(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return PropertiesReader.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * @param lookup returns the string for a key, or null if there is none
+   * @return map of each key that has a string to its values
+   */
+  private Map<String, List<String>> lookup(UnaryOperator<String> lookup) {
+    Map<String, List<String>> values = new HashMap<>();
+    for (String key : keys) {
+      String value = lookup.apply(key);
+      if (value == null) continue;
+      values.put(
+          key,
+          factory.isMultiValued(key)
+              ? Arrays.asList(value.strip().split("[\\n\\r\\s]+"))
+              : List.of(value));
+    }
+    return values;
+  }
+
+  /**
+   * An object built by {@link LayeredLoader#load()}, with the name of the layer that supplied each
+   * value.
+   *
+   * @param <T> configuration class with annotations
+   */
+  public static final class Result<T> {
+    private final T value;
+    private final Map<String, String> origins;
+
+    private Result(T value, Map<String, String> origins) {
+      this.value = value;
+      this.origins = origins;
+    }
+
+    /**
+     * @return an immutable object of type T
+     */
+    public T get() {
+      return value;
+    }
+
+    /**
+     * @param key full key, including any prefix
+     * @return name of the layer the value of key came from, or null if key is not one of {@link
+     *     ConfigFactory#keys()}
+     */
+    public String getOrigin(String key) {
+      return origins.get(key);
+    }
+
+    /**
+     * @return map of each key to the name of the layer its value came from, in the order of {@link
+     *     ConfigFactory#keys()}
+     */
+    public Map<String, String> getOrigins() {
+      return origins;
+    }
+  }
+}
@@ -0,0 +1,304 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads properties text in a single pass without building an Apache Commons {@link
+ * org.apache.commons.configuration2.PropertiesConfiguration}. Comments, line continuations,
+ * separators, escapes and repeated keys are handled the same way as {@link
+ * org.apache.commons.configuration2.PropertiesConfiguration.PropertiesReader}.
+ *
+ * <p>Variable interpolation (e.g. ${key}) is not performed, and "include" directives are not
+ * supported.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+public final class PropertiesReader {
+
+  private PropertiesReader() {}
+
+  /**
+   * Read properties using ISO-8859-1, which is what {@link
+   * org.apache.commons.configuration2.builder.fluent.Configurations#properties(java.io.File)} uses.
+   * Other characters can be written as unicode escapes.
+   *
+   * @param bytes properties text. The buffer's position is not changed.
+   * @return map of each key to its values, in the order they were read
+   */
+  public static Map<String, List<String>> read(ByteBuffer bytes) {
+    return read(bytes, StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * @param bytes properties text. The buffer's position is not changed.
+   * @param charset charset used to decode bytes
+   * @return map of each key to its values, in the order they were read
+   */
+  public static Map<String, List<String>> read(ByteBuffer bytes, Charset charset) {
+    Map<String, List<String>> values = new LinkedHashMap<>();
+    read(
+        bytes,
+        charset,
+        (key, value) -> values.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value));
+    return values;
+  }
+
+  /**
+   * Call the visitor for each property, in the order they appear. A key that appears more than
+   * once is passed to the visitor each time.
+   *
+   * @param bytes properties text. The buffer's position is not changed.
+   * @param charset charset used to decode bytes
+   * @param visitor called with the unescaped key and value of each property
+   */
+  public static void read(ByteBuffer bytes, Charset charset, BiConsumer<String, String> visitor) {
+    if (!isAsciiCompatible(charset)) {
+      // structural characters can't be found by looking at single bytes, so transcode first
+      String text = charset.decode(bytes.duplicate()).toString();
+      bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+      charset = StandardCharsets.UTF_8;
+    }
+    new Scanner(bytes, charset, visitor).scan();
+  }
+
+  /**
+   * In UTF-8 and ISO-8859-1 every character that has meaning in a properties file is a single
+   * byte, and no byte of a multibyte character can be mistaken for one.
+   */
+  private static boolean isAsciiCompatible(Charset charset) {
+    return charset.equals(StandardCharsets.UTF_8)
+        || charset.equals(StandardCharsets.ISO_8859_1)
+        || charset.equals(StandardCharsets.US_ASCII);
+  }
+
+  private static final class Scanner {
+    private final ByteBuffer bytes;
+    private final Charset charset;
+    private final BiConsumer<String, String> visitor;
+    private int pos;
+    private final int limit;
+
+    // holds one logical line, after continuation lines have been joined
+    private byte[] line = new byte[256];
+    private int lineLength;
+
+    private Scanner(ByteBuffer bytes, Charset charset, BiConsumer<String, String> visitor) {
+      this.bytes = bytes;
+      this.charset = charset;
+      this.visitor = visitor;
+      this.pos = bytes.position();
+      this.limit = bytes.limit();
+    }
+
+    private void scan() {
+      while (readProperty()) parseProperty();
+    }
+
+    /**
+     * Same logic as PropertiesConfiguration.PropertiesReader.readProperty(). Comment and blank
+     * lines are skipped, even between continuation lines.
+     *
+     * @return false at end of input
+     */
+    private boolean readProperty() {
+      lineLength = 0;
+      while (true) {
+        if (pos >= limit) return false;
+
+        int start = pos;
+        int end = pos;
+        while (end < limit && bytes.get(end) != '\n' && bytes.get(end) != '\r') end++;
+        pos = end;
+        if (pos < limit) {
+          if (bytes.get(pos) == '\r' && pos + 1 < limit && bytes.get(pos + 1) == '\n') pos++;
+          pos++;
+        }
+
+        // trim as String.trim() does
+        while (start < end && (bytes.get(start) & 0xff) <= ' ') start++;
+        while (end > start && (bytes.get(end - 1) & 0xff) <= ' ') end--;
+        if (start == end) continue;
+        byte first = bytes.get(start);
+        if (first == '#' || first == '!') continue;
+
+        int trailing = 0;
+        while (end - trailing > start && bytes.get(end - trailing - 1) == '\\') trailing++;
+        boolean combine = trailing % 2 != 0;
+        if (combine) end--;
+
+        append(start, end);
+        if (!combine) return true;
+      }
+    }
+
+    private void append(int start, int end) {
+      int length = end - start;
+      if (lineLength + length > line.length)
+        line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+      bytes.get(start, line, lineLength, length);
+      lineLength += length;
+    }
+
+    /** Same logic as PropertiesConfiguration.PropertiesReader.doParseProperty(). */
+    private void parseProperty() {
+      int i = 0;
+      boolean keyEscaped = false;
+      while (i < lineLength) {
+        byte b = line[i];
+        if (b == '\\') {
+          if (i + 1 >= lineLength) break;
+          keyEscaped = true;
+          i += 2;
+        } else if (isWhitespace(b) || b == '=' || b == ':') {
+          break;
+        } else {
+          i++;
+        }
+      }
+      int keyEnd = i;
+
+      // separator is optional whitespace, then whitespace or one of '=' or ':', then whitespace
+      while (i < lineLength && isWhitespace(line[i])) i++;
+      if (i < lineLength && (line[i] == '=' || line[i] == ':')) i++;
+      while (i < lineLength && isWhitespace(line[i])) i++;
+
+      String key = trim(0, keyEnd);
+      if (keyEscaped) key = unescapeKey(key);
+      if (key.equalsIgnoreCase("include") || key.equalsIgnoreCase("includeoptional"))
+        throw new UnsupportedOperationException(
+            "Include directives are not supported: " + key + " = " + trim(i, lineLength));
+
+      String value = trim(i, lineLength);
+      if (value.indexOf('\\') >= 0) value = unescapeValue(value);
+
+      visitor.accept(key, value);
+    }
+
+    private String trim(int start, int end) {
+      while (start < end && (line[start] & 0xff) <= ' ') start++;
+      while (end > start && (line[end - 1] & 0xff) <= ' ') end--;
+      return new String(line, start, end - start, charset);
+    }
+
+    /** Same as the regular expression class \s */
+    private static boolean isWhitespace(byte b) {
+      return b == ' ' || b == '\t' || b == '\n' || b == 0x0b || b == '\f' || b == '\r';
+    }
+  }
+
+  /**
+   * Same as StringEscapeUtils.unescapeJava() from Apache Commons Text, which is used on keys.
+   *
+   * @param s escaped key
+   * @return unescaped key
+   */
+  static String unescapeKey(String s) {
+    StringBuilder out = new StringBuilder(s.length());
+    int i = 0;
+    while (i < s.length()) {
+      char c = s.charAt(i);
+      if (c != '\\' || i + 1 >= s.length()) {
+        if (c != '\\') out.append(c);
+        i++;
+        continue;
+      }
+      char next = s.charAt(i + 1);
+      if (next >= '0' && next <= '7') {
+        int end = i + 2;
+        int maxEnd = next <= '3' ? i + 4 : i + 3;
+        while (end < s.length() && end < maxEnd && s.charAt(end) >= '0' && s.charAt(end) <= '7')
+          end++;
+        out.append((char) Integer.parseInt(s.substring(i + 1, end), 8));
+        i = end;
+      } else if (next == 'u') {
+        int j = i + 1;
+        while (j < s.length() && s.charAt(j) == 'u') j++;
+        if (j < s.length() && s.charAt(j) == '+') j++;
+        if (j + 4 > s.length())
+          throw new IllegalArgumentException("Less than 4 hex digits in unicode value: " + s);
+        out.append((char) Integer.parseInt(s.substring(j, j + 4), 16));
+        i = j + 4;
+      } else {
+        switch (next) {
+          case 'b' -> out.append('\b');
+          case 'n' -> out.append('\n');
+          case 't' -> out.append('\t');
+          case 'f' -> out.append('\f');
+          case 'r' -> out.append('\r');
+          default -> out.append(next);
+        }
+        i += 2;
+      }
+    }
+    return out.toString();
+  }
+
+  /**
+   * Same as PropertiesConfiguration.unescapeJava(), which is used on values.
+   *
+   * @param s escaped value
+   * @return unescaped value
+   */
+  static String unescapeValue(String s) {
+    StringBuilder out = new StringBuilder(s.length());
+    int i = 0;
+    while (i < s.length()) {
+      char c = s.charAt(i++);
+      if (c != '\\') {
+        out.append(c);
+        continue;
+      }
+      if (i >= s.length()) {
+        out.append('\\');
+        break;
+      }
+      char next = s.charAt(i++);
+      switch (next) {
+        case 'r' -> out.append('\r');
+        case 'f' -> out.append('\f');
+        case 't' -> out.append('\t');
+        case 'n' -> out.append('\n');
+        case 'b' -> out.append('\b');
+        case 'u' -> {
+          if (i + 4 > s.length())
+            throw new IllegalArgumentException("Unable to parse unicode value: " + s.substring(i));
+          out.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+          i += 4;
+        }
+        default -> {
+          if (":#=!\\'\"".indexOf(next) < 0) out.append('\\');
+          out.append(next);
+        }
+      }
+    }
+    return out.toString();
+  }
+}
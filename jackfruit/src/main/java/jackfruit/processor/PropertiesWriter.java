@@ -0,0 +1,277 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes properties text directly to an {@link Appendable} without building an Apache Commons
+ * {@link org.apache.commons.configuration2.PropertiesConfiguration}. The output is formatted the
+ * same way as PropertiesConfiguration.write() with a default {@link
+ * org.apache.commons.configuration2.PropertiesConfigurationLayout}.
+ *
+ * <p>Call {@link #key(String, String, int)} to start a property, then {@link #value(String)} once
+ * for each value. The comment and blank lines are written before the first value, so a property
+ * with no values is not written at all.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+public final class PropertiesWriter {
+
+  private static final String SEPARATOR = " = ";
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private final Appendable out;
+  private final boolean latin1;
+
+  private String key;
+  private String comment;
+  private int blankLines;
+  private boolean pending;
+
+  /**
+   * @param out destination for the properties text
+   */
+  public PropertiesWriter(Appendable out) {
+    this(out, false);
+  }
+
+  /**
+   * @param out destination for the properties text
+   * @param latin1 true if out can only hold ISO-8859-1, so characters in keys above 0xFF are
+   *     written as unicode escapes. Keys are unescaped when read, so they read back the same.
+   */
+  PropertiesWriter(Appendable out, boolean latin1) {
+    this.out = out;
+    this.latin1 = latin1;
+  }
+
+  /**
+   * Start a new property.
+   *
+   * @param key full key, including any prefix
+   * @param comment comment to write before the property, or null. Each line that is not already a
+   *     comment is prefixed with "# ".
+   * @param blankLinesBefore number of blank lines to write before the comment
+   * @return this object
+   */
+  public PropertiesWriter key(String key, String comment, int blankLinesBefore) {
+    this.key = key;
+    this.comment = comment;
+    this.blankLines = blankLinesBefore;
+    this.pending = true;
+    return this;
+  }
+
+  /**
+   * Write one value of the current property. If the property has more than one value, each is
+   * written on its own line.
+   *
+   * @param value value to write. Nothing is written if this is null.
+   * @return this object
+   * @throws IOException if the value can't be written
+   */
+  public PropertiesWriter value(String value) throws IOException {
+    if (value == null) return this;
+    if (pending) {
+      for (int i = 0; i < blankLines; i++) out.append(LINE_SEPARATOR);
+      if (comment != null) writeComment(comment);
+      pending = false;
+    }
+    writeKey(key);
+    out.append(SEPARATOR);
+    writeValue(value);
+    out.append(LINE_SEPARATOR);
+    return this;
+  }
+
+  /**
+   * @param value value to write. Nothing is written if this is null.
+   * @return this object
+   * @throws IOException if the value can't be written
+   */
+  public PropertiesWriter value(Object value) throws IOException {
+    return value(value == null ? null : String.valueOf(value));
+  }
+
+  /**
+   * @param value value to write
+   * @return this object
+   * @throws IOException if the value can't be written
+   */
+  public PropertiesWriter value(boolean value) throws IOException {
+    return value(String.valueOf(value));
+  }
+
+  /**
+   * @param value value to write
+   * @return this object
+   * @throws IOException if the value can't be written
+   */
+  public PropertiesWriter value(int value) throws IOException {
+    return value(String.valueOf(value));
+  }
+
+  /**
+   * @param value value to write
+   * @return this object
+   * @throws IOException if the value can't be written
+   */
+  public PropertiesWriter value(long value) throws IOException {
+    return value(String.valueOf(value));
+  }
+
+  /**
+   * @param value value to write
+   * @return this object
+   * @throws IOException if the value can't be written
+   */
+  public PropertiesWriter value(float value) throws IOException {
+    return value(String.valueOf(value));
+  }
+
+  /**
+   * @param value value to write
+   * @return this object
+   * @throws IOException if the value can't be written
+   */
+  public PropertiesWriter value(double value) throws IOException {
+    return value(String.valueOf(value));
+  }
+
+  /** Same as PropertiesConfigurationLayout.trimComment() followed by writeComment(). */
+  private void writeComment(String comment) throws IOException {
+    int lastPos = 0;
+    int pos;
+    while ((pos = comment.indexOf('\n', lastPos)) >= 0) {
+      writeCommentLine(comment, lastPos, pos);
+      out.append(LINE_SEPARATOR);
+      lastPos = pos + 1;
+    }
+    if (lastPos < comment.length()) writeCommentLine(comment, lastPos, comment.length());
+    out.append(LINE_SEPARATOR);
+  }
+
+  private void writeCommentLine(String comment, int start, int end) throws IOException {
+    boolean blank = true;
+    for (int i = start; i < end && blank; i++) blank = Character.isWhitespace(comment.charAt(i));
+    int first = start;
+    while (first < end && comment.charAt(first) <= ' ') first++;
+    if (!blank && first < end && comment.charAt(first) != '#' && comment.charAt(first) != '!')
+      out.append("# ");
+    out.append(comment, start, end);
+  }
+
+  /**
+   * Same as PropertiesConfiguration.PropertiesWriter.escapeKey(). If the output is ISO-8859-1,
+   * characters above 0xFF are also written as unicode escapes.
+   */
+  private void writeKey(String key) throws IOException {
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (c == '=' || c == ':' || c == ' ' || c == '\t' || c == '\f' || c == '\\') out.append('\\');
+      if (latin1 && c > 0xff) {
+        out.append("\\u");
+        for (int shift = 12; shift >= 0; shift -= 4) out.append(HEX[(c >> shift) & 0xf]);
+      } else {
+        out.append(c);
+      }
+    }
+  }
+
+  /**
+   * Same as the ESCAPE_PROPERTIES translator in PropertiesConfiguration.PropertiesWriter.
+   * Backslashes and Java control characters are escaped, and code points outside of 32 to 127 are
+   * written as unicode escapes.
+   */
+  private void writeValue(String value) throws IOException {
+    int start = 0;
+    int i = 0;
+    while (i < value.length()) {
+      int cp = value.codePointAt(i);
+      int length = Character.charCount(cp);
+      if (cp >= 32 && cp <= 0x7f && cp != '\\') {
+        i += length;
+        continue;
+      }
+      out.append(value, start, i);
+      switch (cp) {
+        case '\\' -> out.append("\\\\");
+        case '\b' -> out.append("\\b");
+        case '\n' -> out.append("\\n");
+        case '\t' -> out.append("\\t");
+        case '\f' -> out.append("\\f");
+        case '\r' -> out.append("\\r");
+        default -> {
+          out.append("\\u");
+          int digits = Math.max(4, (35 - Integer.numberOfLeadingZeros(cp)) / 4);
+          for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4)
+            out.append(HEX[(cp >> shift) & 0xf]);
+        }
+      }
+      i += length;
+      start = i;
+    }
+    out.append(value, start, value.length());
+  }
+
+  /**
+   * An {@link Appendable} that encodes characters as ISO-8859-1 into a buffer, which is written to
+   * a channel when it is full and when {@link #flush()} is called. Characters that can't be encoded
+   * are written as '?'. Values are always escaped to ASCII, and keys are escaped when the {@link
+   * PropertiesWriter} is created with latin1 true, so this only affects comments.
+   */
+  static final class ChannelAppendable implements Appendable {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+    ChannelAppendable(WritableByteChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+      return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+      for (int i = start; i < end; i++) append(csq.charAt(i));
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+      if (!buffer.hasRemaining()) flush();
+      buffer.put(c > 0xff ? (byte) '?' : (byte) c);
+      return this;
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) channel.write(buffer);
+      buffer.clear();
+    }
+  }
+}
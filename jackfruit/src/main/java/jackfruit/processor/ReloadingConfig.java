@@ -0,0 +1,231 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Holds an immutable object of type T read from a properties file, and replaces it when the file
+ * changes. The file is watched with a {@link WatchService} on a daemon thread. A burst of changes
+ * is reloaded once, after no change has been seen for the debounce interval.
+ *
+ * <p>The file is read with {@link ConfigFactory#fromBytes(ByteBuffer)}, so every value is converted
+ * before the new object is published. If the file can't be read or a value can't be converted, the
+ * error is logged and the previous object is kept. Readers calling {@link #get()} never block and
+ * always see either the old or the new object.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ * @param <T> configuration class with annotations
+ */
+public final class ReloadingConfig<T> implements Closeable {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  private final ConfigFactory<T> factory;
+  private final Path path;
+  private final long debounceMillis;
+  private final WatchService watcher;
+  private final Thread thread;
+  private final List<Consumer<T>> listeners = new CopyOnWriteArrayList<>();
+  private final List<BiConsumer<T, List<String>>> changeListeners = new CopyOnWriteArrayList<>();
+
+  private volatile T current;
+
+  /**
+   * Same as {@link #ReloadingConfig(ConfigFactory, Path, Duration)} with a debounce interval of
+   * 100 ms.
+   *
+   * @param factory factory used to read the file
+   * @param path properties file
+   * @throws IOException if the file can't be read or watched
+   */
+  public ReloadingConfig(ConfigFactory<T> factory, Path path) throws IOException {
+    this(factory, path, Duration.ofMillis(100));
+  }
+
+  /**
+   * The file is read before this constructor returns. Any exception from the initial read is
+   * thrown to the caller.
+   *
+   * @param factory factory used to read the file
+   * @param path properties file
+   * @param debounce wait until the file has not changed for this long before reloading
+   * @throws IOException if the file can't be read or watched
+   */
+  public ReloadingConfig(ConfigFactory<T> factory, Path path, Duration debounce)
+      throws IOException {
+    this.factory = factory;
+    this.path = path.toAbsolutePath();
+    this.debounceMillis = Math.max(1, debounce.toMillis());
+    this.current = read();
+
+    this.watcher = this.path.getFileSystem().newWatchService();
+    this.path
+        .getParent()
+        .register(
+            watcher,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+
+    this.thread = new Thread(this::watch, "ReloadingConfig " + this.path.getFileName());
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * @return the most recently loaded object
+   */
+  public T get() {
+    return current;
+  }
+
+  /**
+   * @param listener called on the watching thread with each new object after it is published
+   */
+  public void addListener(Consumer<T> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * @param listener listener to remove
+   */
+  public void removeListener(Consumer<T> listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * @param listener called on the watching thread with each new object and the keys that changed,
+   *     as found by {@link ConfigFactory#diff(Object, Object)}. It is not called if the file was
+   *     reloaded but no value changed.
+   */
+  public void addChangeListener(BiConsumer<T, List<String>> listener) {
+    changeListeners.add(listener);
+  }
+
+  /**
+   * @param listener listener to remove
+   */
+  public void removeChangeListener(BiConsumer<T, List<String>> listener) {
+    changeListeners.remove(listener);
+  }
+
+  /**
+   * Read the file now, on the calling thread, and publish the result.
+   *
+   * @return the new object
+   * @throws IOException if the file can't be read
+   */
+  public T reload() throws IOException {
+    T t = read();
+    publish(t);
+    return t;
+  }
+
+  /** Stop watching the file. The last object loaded is still returned by {@link #get()}. */
+  @Override
+  public void close() throws IOException {
+    watcher.close();
+    thread.interrupt();
+  }
+
+  private T read() throws IOException {
+    // read into the heap rather than memory mapping, since the file may be truncated by an editor
+    // while it is being read
+    return factory.fromBytes(ByteBuffer.wrap(Files.readAllBytes(path)));
+  }
+
+  private synchronized void publish(T t) {
+    T previous = current;
+    current = t;
+    for (Consumer<T> listener : listeners) {
+      try {
+        listener.accept(t);
+      } catch (RuntimeException e) {
+        logger.warn("Listener for {} failed", path, e);
+      }
+    }
+
+    if (changeListeners.isEmpty()) return;
+    List<String> changed = factory.diff(previous, t);
+    if (changed.isEmpty()) return;
+    for (BiConsumer<T, List<String>> listener : changeListeners) {
+      try {
+        listener.accept(t, changed);
+      } catch (RuntimeException e) {
+        logger.warn("Listener for {} failed", path, e);
+      }
+    }
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        boolean changed = isChanged(watcher.take());
+        // keep collecting events until the file has been quiet for the debounce interval
+        while (changed) {
+          WatchKey key = watcher.poll(debounceMillis, TimeUnit.MILLISECONDS);
+          if (key == null) break;
+          isChanged(key);
+        }
+        if (changed) {
+          try {
+            publish(read());
+          } catch (IOException | RuntimeException e) {
+            logger.warn("Could not reload {}, keeping previous values", path, e);
+          }
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // closed
+    }
+  }
+
+  /**
+   * @return true if any event in this key refers to the watched file
+   */
+  private boolean isChanged(WatchKey key) {
+    boolean changed = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW
+          || path.getFileName().equals(event.context())) changed = true;
+    }
+    key.reset();
+    return changed;
+  }
+}
@@ -0,0 +1,208 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reads objects of type T from properties files, keeping a binary copy of each object so that
+ * later reads of an unchanged file, including those by other processes, don't parse it again. This
+ * is useful for programs that start often and read the same large file each time.
+ *
+ * <p>Each source file has one cache file in the cache directory, named from the factory, its prefix
+ * and the absolute path of the source. The cache file holds the SHA-256 hash of the contents of the
+ * source followed by the object, as written by {@link ConfigFactory#writeBinary(Object,
+ * java.io.DataOutput)}. If the hash matches the source, the cache file is memory mapped and read
+ * with {@link ConfigFactory#fromBinary(ByteBuffer)}. Otherwise the source is read with {@link
+ * ConfigFactory#fromBytes(ByteBuffer)} and the cache file is replaced by writing a temporary file
+ * and renaming it, so a process never sees a partly written cache file.
+ *
+ * <p>A cache file that can't be read, is corrupt or was written by a factory with a different
+ * schema is treated as a miss. A cache file that can't be written is logged and skipped. In both
+ * cases the object is read from the source file.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ * @param <T> configuration class with annotations
+ */
+public final class SnapshotCache<T> {
+
+  private static final Logger logger = LogManager.getLogger();
+
+  private final ConfigFactory<T> factory;
+  private final Path directory;
+  private final byte[] identity;
+
+  /**
+   * Anyone who can write to the cache directory can change the objects that are loaded, so it
+   * should belong to the user running the program, and not be a shared directory such as
+   * java.io.tmpdir.
+   *
+   * @param factory factory used to read the source files
+   * @param directory directory holding the cache files. If it does not exist, it is created when
+   *     the first cache file is written, readable and writable only by its owner where the file
+   *     system supports POSIX permissions.
+   */
+  public SnapshotCache(ConfigFactory<T> factory, Path directory) {
+    this.factory = factory;
+    this.directory = directory;
+
+    // the binary data does not include the prefix, so factories with different prefixes need
+    // different cache files. The template's keys include the prefix.
+    StringBuilder template = new StringBuilder(factory.getClass().getName()).append('\n');
+    try {
+      factory.writeTo(factory.getTemplate(), template);
+    } catch (IOException e) {
+      // not thrown by StringBuilder
+      throw new UncheckedIOException(e);
+    }
+    this.identity = sha256().digest(template.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return directory holding the cache files
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Read an object from a properties file, using the cached copy if the file has not changed since
+   * it was cached.
+   *
+   * @param path properties file, in ISO-8859-1
+   * @return an immutable object of type T from the supplied file.
+   * @throws IOException if the properties file can't be read
+   */
+  public T load(Path path) throws IOException {
+    Path source = path.toAbsolutePath();
+    try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+      ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      MessageDigest digest = sha256();
+      digest.update(bytes.duplicate());
+      byte[] hash = digest.digest();
+
+      Path cacheFile = cacheFile(source);
+      T t = readCache(cacheFile, hash);
+      if (t != null) return t;
+
+      t = factory.fromBytes(bytes);
+      writeCache(cacheFile, hash, t);
+      return t;
+    }
+  }
+
+  /**
+   * @param source absolute path of the properties file
+   * @return path of the cache file for the source
+   */
+  Path cacheFile(Path source) {
+    MessageDigest digest = sha256();
+    digest.update(identity);
+    byte[] key = digest.digest(source.toString().getBytes(StandardCharsets.UTF_8));
+    return directory.resolve(
+        String.format(
+            "%s-%s.bin",
+            factory.getClass().getSimpleName(), HexFormat.of().formatHex(key, 0, 16)));
+  }
+
+  /**
+   * @return the cached object, or null if there is no cache file, it was written from different
+   *     contents or it can't be read
+   */
+  private T readCache(Path cacheFile, byte[] hash) {
+    try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+      ByteBuffer cached = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (cached.remaining() < hash.length
+          || !cached.slice(0, hash.length).equals(ByteBuffer.wrap(hash))) return null;
+      return factory.fromBinary(cached.position(hash.length));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | RuntimeException | InternalError e) {
+      // InternalError is thrown if a mapped file is truncated while it is read
+      logger.debug("Could not read cache file {}", cacheFile, e);
+      return null;
+    }
+  }
+
+  private void writeCache(Path cacheFile, byte[] hash, T t) {
+    Path temporary = null;
+    try {
+      if (!Files.isDirectory(directory)) createDirectory();
+      temporary = Files.createTempFile(directory, cacheFile.getFileName().toString(), ".tmp");
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        out.write(hash);
+        factory.writeBinary(t, out);
+      }
+      try {
+        Files.move(
+            temporary,
+            cacheFile,
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Could not write cache file {}", cacheFile, e);
+      try {
+        if (temporary != null) Files.deleteIfExists(temporary);
+      } catch (IOException e1) {
+        // nothing more to do
+      }
+    }
+  }
+
+  private void createDirectory() throws IOException {
+    if (directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+      Files.createDirectories(
+          directory,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+    else Files.createDirectories(directory);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package jackfruit.processor;
+
+/*-
+ * #%L
+ * jackfruit
+ * %%
+ * Copyright (C) 2023 Johns Hopkins University Applied Physics Lab
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javax.lang.model.type.TypeKind;
+
+/**
+ * The kind of value returned by an annotated method, or of each element of a list or primitive
+ * array. This is found once for each method when its {@link AnnotationBundle} is built, so that code
+ * generation doesn't need to compare types again.
+ *
+ * @author Hari.Nair@jhuapl.edu
+ */
+public enum ValueKind {
+  BOOLEAN(Boolean.class, TypeKind.BOOLEAN),
+  BYTE(Byte.class, TypeKind.BYTE),
+  DOUBLE(Double.class, TypeKind.DOUBLE),
+  FLOAT(Float.class, TypeKind.FLOAT),
+  INTEGER(Integer.class, TypeKind.INT),
+  LONG(Long.class, TypeKind.LONG),
+  SHORT(Short.class, TypeKind.SHORT),
+  STRING(String.class, null),
+  /** An enum, converted with an {@link EnumLookup} unless it has a ParserClass */
+  ENUM(null, null),
+  /** Any other type, which needs a {@link jackfruit.annotations.ParserClass} */
+  OTHER(null, null);
+
+  private final Class<?> boxedClass;
+  private final TypeKind primitiveKind;
+
+  ValueKind(Class<?> boxedClass, TypeKind primitiveKind) {
+    this.boxedClass = boxedClass;
+    this.primitiveKind = primitiveKind;
+  }
+
+  /**
+   * @return the class of this value, or its wrapper class if it is primitive. This is null for
+   *     {@link #ENUM} and {@link #OTHER}.
+   */
+  public Class<?> boxedClass() {
+    return boxedClass;
+  }
+
+  /**
+   * @return the primitive kind of this value, or null if it has none
+   */
+  public TypeKind primitiveKind() {
+    return primitiveKind;
+  }
+}